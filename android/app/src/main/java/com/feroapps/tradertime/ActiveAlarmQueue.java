@@ -0,0 +1,93 @@
+package com.feroapps.tradertime;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Alarms that are currently ringing in one AlarmSoundService session.
+ *
+ * The head (highest priority, then earliest) decides what is shown and played.
+ * All methods are synchronized so the plugin, receivers and the service can
+ * query or stop alarms from any thread.
+ */
+public class ActiveAlarmQueue {
+
+    public static class ActiveAlarm {
+        public final String alarmId;
+        public final String label;
+        public final String soundId;
+        public final int priority;
+        public final long startedAtMs;
+
+        ActiveAlarm(String alarmId, String label, String soundId, int priority, long startedAtMs) {
+            this.alarmId = alarmId;
+            this.label = label;
+            this.soundId = soundId;
+            this.priority = priority;
+            this.startedAtMs = startedAtMs;
+        }
+    }
+
+    private static final Comparator<ActiveAlarm> ORDER = (a, b) -> {
+        if (a.priority != b.priority) return Integer.compare(b.priority, a.priority);
+        return Long.compare(a.startedAtMs, b.startedAtMs);
+    };
+
+    private final PriorityQueue<ActiveAlarm> queue = new PriorityQueue<>(4, ORDER);
+    private final Map<String, ActiveAlarm> byId = new HashMap<>();
+
+    // Returns false if the alarm was already ringing (its entry is refreshed)
+    public synchronized boolean add(ActiveAlarm alarm) {
+        ActiveAlarm previous = byId.put(alarm.alarmId, alarm);
+        if (previous != null) queue.remove(previous);
+        queue.add(alarm);
+        return previous == null;
+    }
+
+    public synchronized List<ActiveAlarm> remove(Collection<String> alarmIds) {
+        List<ActiveAlarm> removed = new ArrayList<>();
+        for (String id : alarmIds) {
+            ActiveAlarm alarm = byId.remove(id);
+            if (alarm != null) {
+                queue.remove(alarm);
+                removed.add(alarm);
+            }
+        }
+        return removed;
+    }
+
+    public synchronized List<ActiveAlarm> clear() {
+        List<ActiveAlarm> removed = sorted();
+        queue.clear();
+        byId.clear();
+        return removed;
+    }
+
+    public synchronized ActiveAlarm peek() {
+        return queue.peek();
+    }
+
+    public synchronized boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public synchronized List<ActiveAlarm> snapshot() {
+        return Collections.unmodifiableList(sorted());
+    }
+
+    private List<ActiveAlarm> sorted() {
+        List<ActiveAlarm> list = new ArrayList<>(queue);
+        Collections.sort(list, ORDER);
+        return list;
+    }
+}
@@ -0,0 +1,148 @@
+package com.feroapps.tradertime;
+
+import com.getcapacitor.JSObject;
+
+/**
+ * In-process counters and timings for the rewarded ad pipeline.
+ *
+ * Kept in memory only: the numbers are for tuning prefetch timing during a
+ * session, not for long-term reporting. All methods are synchronized on the class.
+ */
+public class AdMetrics {
+
+    private static long sdkInitMs = -1;
+
+    private static int loadsStarted;
+    private static int loadsFilled;
+    private static int loadsNoFill;
+    private static int loadsFailed;
+    // Kept apart: a quick no-fill would otherwise make loading look faster than it is
+    private static final Timing fillLatency = new Timing();
+    private static final Timing failureLatency = new Timing();
+
+    // load() calls from JS and how many were answered from the cache
+    private static int loadRequests;
+    private static int cacheHits;
+    private static final Timing loadWait = new Timing();
+
+    private static int showsRequested;
+    // show() found nothing cached, so no ad was attempted
+    private static int showCacheMisses;
+    private static int showsFailed;
+    private static int dismissed;
+    private static int rewarded;
+    private static final Timing timeToShow = new Timing();
+    private static final Timing showToDismiss = new Timing();
+
+    private static class Timing {
+        int count;
+        long totalMs;
+        long maxMs;
+        long lastMs;
+
+        void add(long ms) {
+            count++;
+            totalMs += ms;
+            lastMs = ms;
+            if (ms > maxMs) maxMs = ms;
+        }
+
+        JSObject toJson() {
+            JSObject obj = new JSObject();
+            obj.put("count", count);
+            obj.put("avgMs", count > 0 ? totalMs / count : 0);
+            obj.put("maxMs", maxMs);
+            obj.put("lastMs", lastMs);
+            return obj;
+        }
+    }
+
+    public static synchronized void sdkInitialized(long ms) {
+        sdkInitMs = ms;
+    }
+
+    public static synchronized void loadStarted() {
+        loadsStarted++;
+    }
+
+    public static synchronized void loadFilled(long latencyMs) {
+        loadsFilled++;
+        fillLatency.add(latencyMs);
+    }
+
+    public static synchronized void loadFailed(long latencyMs, boolean noFill) {
+        if (noFill) {
+            loadsNoFill++;
+        } else {
+            loadsFailed++;
+        }
+        failureLatency.add(latencyMs);
+    }
+
+    public static synchronized void loadRequested(boolean cacheHit, long waitMs) {
+        loadRequests++;
+        if (cacheHit) cacheHits++;
+        loadWait.add(waitMs);
+    }
+
+    public static synchronized void showRequested() {
+        showsRequested++;
+    }
+
+    public static synchronized void showStarted(long waitMs) {
+        timeToShow.add(waitMs);
+    }
+
+    public static synchronized void showCacheMiss() {
+        showCacheMisses++;
+    }
+
+    // The SDK could not show an ad it had loaded
+    public static synchronized void showFailed() {
+        showsFailed++;
+    }
+
+    public static synchronized void showDismissed(long shownMs, boolean earnedReward) {
+        dismissed++;
+        if (earnedReward) rewarded++;
+        showToDismiss.add(shownMs);
+    }
+
+    public static synchronized JSObject snapshot() {
+        JSObject loads = new JSObject();
+        loads.put("started", loadsStarted);
+        loads.put("filled", loadsFilled);
+        loads.put("noFill", loadsNoFill);
+        loads.put("failed", loadsFailed);
+        loads.put("fillRate", ratio(loadsFilled, loadsFilled + loadsNoFill + loadsFailed));
+        loads.put("fillLatency", fillLatency.toJson());
+        loads.put("failureLatency", failureLatency.toJson());
+
+        JSObject requests = new JSObject();
+        requests.put("count", loadRequests);
+        requests.put("cacheHits", cacheHits);
+        requests.put("cacheHitRate", ratio(cacheHits, loadRequests));
+        requests.put("wait", loadWait.toJson());
+
+        JSObject shows = new JSObject();
+        shows.put("requested", showsRequested);
+        shows.put("cacheMisses", showCacheMisses);
+        shows.put("failed", showsFailed);
+        shows.put("dismissed", dismissed);
+        shows.put("rewarded", rewarded);
+        shows.put("rewardRate", ratio(rewarded, dismissed));
+        shows.put("timeToShow", timeToShow.toJson());
+        shows.put("showToDismiss", showToDismiss.toJson());
+
+        JSObject result = new JSObject();
+        result.put("sdkInitMs", sdkInitMs);
+        result.put("loads", loads);
+        result.put("loadRequests", requests);
+        result.put("shows", shows);
+        return result;
+    }
+
+    private static double ratio(int part, int whole) {
+        return whole > 0 ? (double) part / whole : 0;
+    }
+}
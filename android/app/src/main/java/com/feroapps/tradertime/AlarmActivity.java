@@ -4,13 +4,50 @@ import android.app.Activity;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
 import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
+import android.widget.TextView;
 import android.os.PowerManager;
 import android.app.KeyguardManager;
+
+import java.util.List;
+import java.util.Locale;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Native ringing screen.
+ *
+ * Everything shown here comes from native state (the ringing queue and the fixed
+ * session table), so an alarm never has to start the WebView; MainActivity is
+ * only launched when the user taps "Open app".
+ */
 public class AlarmActivity extends Activity {
 
+    private static final String TAG = "AlarmActivity";
+
+    // elapsedRealtime() when the alarm fired, for time-to-first-frame
+    public static final String EXTRA_FIRED_AT_ELAPSED = "fired_at_elapsed";
+
+    static final String WAKE_TAG_SCREEN = "alarm_screen";
+    private static final long SCREEN_WAKE_TIMEOUT_MS = 30_000;
+
+    private static final String PREFS_NAME = "TraderTimeDiagnostics";
+    private static final String KEY_TTFF_LAST_MS = "alarm_screen_ttff_last_ms";
+    private static final String KEY_TTFF_TOTAL_MS = "alarm_screen_ttff_total_ms";
+    private static final String KEY_TTFF_SAMPLES = "alarm_screen_ttff_samples";
+
+    private WakeLockManager.Handle screenWakeLock;
+    private boolean receiverRegistered;
+
     private final BroadcastReceiver finishReceiver = new BroadcastReceiver() {
         @Override
         public void onReceive(Context context, Intent intent) {
@@ -20,15 +57,23 @@ public class AlarmActivity extends Activity {
         }
     };
 
+    public static class FirstFrameStats {
+        public long lastMs;
+        public long averageMs;
+        public int samples;
+    }
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_alarm);
 
-        String label = getIntent().getStringExtra(AlarmSoundService.EXTRA_ALARM_LABEL);
-        if (label == null) label = "Trader Time Alert";
-
-        ((android.widget.TextView) findViewById(R.id.tvAlarmLabel)).setText(label);
+        bind(getIntent());
+        // Only a launch straight from the fire has a start time. The notification's full-screen
+        // intent can be opened any time later, and a recreated activity re-delivers the old extra.
+        if (savedInstanceState == null && getIntent().hasExtra(EXTRA_FIRED_AT_ELAPSED)) {
+            measureFirstFrame(getIntent().getLongExtra(EXTRA_FIRED_AT_ELAPSED, 0));
+        }
 
         findViewById(R.id.btnStop).setOnClickListener(v -> {
             android.content.Intent i = new android.content.Intent(this, AlarmSoundService.class);
@@ -36,10 +81,30 @@ public class AlarmActivity extends Activity {
             startService(i);
             finish();
         });
+        findViewById(R.id.btnSnooze).setOnClickListener(v -> {
+            Intent i = new Intent(this, AlarmSoundService.class);
+            i.setAction(AlarmSoundService.ACTION_SNOOZE);
+            startService(i);
+            finish();
+        });
+        // The only path from the ringing screen that starts the WebView
+        findViewById(R.id.btnOpenApp).setOnClickListener(v -> {
+            Intent open = new Intent(this, MainActivity.class);
+            open.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+            open.putExtra(MainActivity.EXTRA_FROM_ALARM, true);
+            startActivity(open);
+            finish();
+        });
+
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
             setShowWhenLocked(true);
             setTurnScreenOn(true);
             getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+
+            KeyguardManager km = (KeyguardManager) getSystemService(KEYGUARD_SERVICE);
+            if (km != null) {
+                km.requestDismissKeyguard(this, null);
+            }
         } else {
             getWindow().addFlags(
                     WindowManager.LayoutParams.FLAG_SHOW_WHEN_LOCKED
@@ -48,26 +113,117 @@ public class AlarmActivity extends Activity {
                             | WindowManager.LayoutParams.FLAG_DISMISS_KEYGUARD
             );
         }
-        PowerManager pm = (PowerManager) getSystemService(POWER_SERVICE);
-        if (pm != null) {
-            PowerManager.WakeLock wl = pm.newWakeLock(
-                    PowerManager.SCREEN_BRIGHT_WAKE_LOCK
-                            | PowerManager.ACQUIRE_CAUSES_WAKEUP
-                            | PowerManager.ON_AFTER_RELEASE,
-                    "tradertime:alarm_wake");
-            wl.acquire(30_000);
+        // Released in onDestroy, so a recreated activity never stacks a second lock
+        screenWakeLock = WakeLockManager.acquire(this, WAKE_TAG_SCREEN,
+                PowerManager.SCREEN_BRIGHT_WAKE_LOCK
+                        | PowerManager.ACQUIRE_CAUSES_WAKEUP
+                        | PowerManager.ON_AFTER_RELEASE,
+                SCREEN_WAKE_TIMEOUT_MS);
+
+        IntentFilter filter = new IntentFilter(AlarmSoundService.ACTION_FINISH_ALARM_ACTIVITY);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            registerReceiver(finishReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            registerReceiver(finishReceiver, filter);
         }
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1) {
-            setShowWhenLocked(true);
-            setTurnScreenOn(true);
-            getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
+        receiverRegistered = true;
+    }
 
-            KeyguardManager km = (KeyguardManager) getSystemService(KEYGUARD_SERVICE);
-            if (km != null) {
-                km.requestDismissKeyguard(this, null);
-            }
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        bind(intent);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (receiverRegistered) {
+            unregisterReceiver(finishReceiver);
+            receiverRegistered = false;
+        }
+        if (screenWakeLock != null) {
+            screenWakeLock.release();
+            screenWakeLock = null;
         }
+    }
+
+    // The ringing queue wins over the intent, which may be older than the latest alarm
+    private void bind(Intent intent) {
+        String label = intent.getStringExtra(AlarmSoundService.EXTRA_ALARM_LABEL);
+        List<ActiveAlarmQueue.ActiveAlarm> ringing = AlarmSoundService.getActiveAlarms();
+        if (!ringing.isEmpty()) {
+            label = ringing.get(0).label;
+            if (ringing.size() > 1) label += " (+" + (ringing.size() - 1) + " more)";
+        }
+        if (label == null) label = "Trader Time Alert";
+
+        SimpleDateFormat utc = new SimpleDateFormat("HH:mm", Locale.US);
+        utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+        long now = System.currentTimeMillis();
+
+        ((TextView) findViewById(R.id.tvAlarmLabel)).setText(label);
+        bindSnooze(!ringing.isEmpty() ? ringing.get(0).alarmId
+                : intent.getStringExtra(AlarmSoundService.EXTRA_ALARM_ID));
+        ((TextView) findViewById(R.id.tvAlarmTime)).setText(utc.format(new Date(now)) + " UTC");
+
+        String nextSessionId = FixedSessionScheduler.nextSessionId(now);
+        TextView nextSession = findViewById(R.id.tvNextSession);
+        if (nextSessionId != null) {
+            long nextMs = FixedSessionScheduler.nextTriggerTimeMs(nextSessionId, now);
+            nextSession.setText("Next: " + FixedSessionNotifier.sessionTitle(nextSessionId)
+                    + " at " + utc.format(new Date(nextMs)) + " UTC");
+        } else {
+            nextSession.setText("");
+        }
+    }
+
+    // Offered while the head alarm has snoozes left; the service snoozes every ringing alarm.
+    // The intent's id covers the window before the service has queued the alarm
+    private void bindSnooze(String alarmId) {
+        TextView snooze = findViewById(R.id.btnSnooze);
+        String baseId = alarmId != null ? AlarmSnoozer.baseId(alarmId) : null;
+        if (baseId == null || !SnoozePolicy.canSnooze(this, baseId)) {
+            snooze.setVisibility(View.GONE);
+            return;
+        }
+        long minutes = SnoozePolicy.durationMs(this, SnoozePolicy.getCount(this, baseId)) / 60_000;
+        snooze.setText("Snooze " + minutes + " min");
+        snooze.setVisibility(View.VISIBLE);
+    }
+
+    private void measureFirstFrame(long startElapsed) {
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                // Posted so the measurement lands after the frame has been drawn
+                decor.post(() -> recordFirstFrame(getApplicationContext(),
+                        SystemClock.elapsedRealtime() - startElapsed));
+                return true;
+            }
+        });
+    }
+
+    private static void recordFirstFrame(Context context, long ms) {
+        Log.i(TAG, "Alarm screen first frame after " + ms + " ms");
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        prefs.edit()
+                .putLong(KEY_TTFF_LAST_MS, ms)
+                .putLong(KEY_TTFF_TOTAL_MS, prefs.getLong(KEY_TTFF_TOTAL_MS, 0) + ms)
+                .putInt(KEY_TTFF_SAMPLES, prefs.getInt(KEY_TTFF_SAMPLES, 0) + 1)
+                .apply();
+    }
 
+    public static FirstFrameStats getFirstFrameStats(Context context) {
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        FirstFrameStats s = new FirstFrameStats();
+        s.lastMs = prefs.getLong(KEY_TTFF_LAST_MS, 0);
+        s.samples = prefs.getInt(KEY_TTFF_SAMPLES, 0);
+        s.averageMs = s.samples > 0 ? prefs.getLong(KEY_TTFF_TOTAL_MS, 0) / s.samples : 0;
+        return s;
     }
 
     private boolean stopSent = false;
@@ -90,4 +246,4 @@ public class AlarmActivity extends Activity {
         }
         return super.dispatchKeyEvent(event);
     }
-}
\ No newline at end of file
+}
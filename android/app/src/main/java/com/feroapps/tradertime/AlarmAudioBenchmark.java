@@ -0,0 +1,141 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.media.MediaTimestamp;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * On-device comparison of alarm start latency: the old MediaPlayer.create() path
+ * against the PCM cache engine. Both run muted. Blocking, call off the main thread.
+ *
+ * Both sides are timed from the start request to the moment their first frame
+ * reached the audio output. That moment comes from the output's own timestamp
+ * (AudioTrack.getTimestamp, MediaPlayer.getTimestamp), extrapolated back from
+ * the first report past frame 0, all on the System.nanoTime() clock.
+ */
+public class AlarmAudioBenchmark {
+
+    private static final String TAG = "AlarmAudioBenchmark";
+
+    private static final long FIRST_FRAME_WAIT_MS = 1000;
+
+    // Each iteration can wait out FIRST_FRAME_WAIT_MS on both sides
+    public static final int MAX_ITERATIONS = 50;
+
+    private static final ExecutorService RUNNER =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "alarm-audio-benchmark"));
+    private static final AtomicBoolean RUNNING = new AtomicBoolean();
+
+    public static class Result {
+        public final String soundId;
+        public final int iterations;
+        public final long mediaPlayerMedianUs;
+        public final long engineMedianUs;
+
+        Result(String soundId, int iterations, long mediaPlayerMedianUs, long engineMedianUs) {
+            this.soundId = soundId;
+            this.iterations = iterations;
+            this.mediaPlayerMedianUs = mediaPlayerMedianUs;
+            this.engineMedianUs = engineMedianUs;
+        }
+    }
+
+    // Runs task on the benchmark thread, or returns false if a benchmark is already queued or running:
+    // two at once would share the engine and time each other
+    public static boolean executeAsync(Runnable task) {
+        if (!RUNNING.compareAndSet(false, true)) return false;
+        RUNNER.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                RUNNING.set(false);
+            }
+        });
+        return true;
+    }
+
+    // iterations is clamped to [1, MAX_ITERATIONS]
+    public static Result run(Context context, SoundCatalog.Sound sound, int iterations) throws IOException {
+        if (sound.isImported()) throw new IOException("Benchmark needs a bundled sound");
+        iterations = Math.max(1, Math.min(iterations, MAX_ITERATIONS));
+
+        // Make sure the decode cost is not part of the measurement
+        AlarmAudioEngine.load(context, sound);
+
+        long[] mediaPlayerUs = new long[iterations];
+        long[] engineUs = new long[iterations];
+
+        AudioAttributes attrs = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_ALARM)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+
+        for (int i = 0; i < iterations; i++) {
+            long t0 = System.nanoTime();
+            MediaPlayer player = MediaPlayer.create(context, sound.rawRes, attrs, 0);
+            if (player == null) throw new IOException("MediaPlayer.create returned null");
+            try {
+                player.setVolume(0f, 0f);
+                player.setLooping(true);
+                player.start();
+                mediaPlayerUs[i] = awaitFirstFrame("MediaPlayer", t0, () -> firstFrameNanoTime(player));
+            } finally {
+                player.release();
+            }
+
+            // Include the memory map, as in a cold service start
+            AlarmAudioEngine.evict(sound);
+            long t1 = System.nanoTime();
+            if (!AlarmAudioEngine.play(context, sound, SystemClock.elapsedRealtimeNanos(), 0f)) {
+                throw new IOException("Engine could not start " + sound.id);
+            }
+            try {
+                engineUs[i] = awaitFirstFrame("Engine", t1, AlarmAudioEngine::getFirstFrameNanoTime);
+            } finally {
+                AlarmAudioEngine.stop();
+            }
+        }
+
+        Result result = new Result(sound.id, iterations, median(mediaPlayerUs), median(engineUs));
+        Log.i(TAG, sound.id + ": MediaPlayer median " + result.mediaPlayerMedianUs
+                + " us, engine median " + result.engineMedianUs + " us (" + iterations + " runs)");
+        return result;
+    }
+
+    // Microseconds from startedAt to the first frame, polling until the output reports one
+    private static long awaitFirstFrame(String side, long startedAt, LongSupplier firstFrameNanoTime)
+            throws IOException {
+        long deadline = System.nanoTime() + FIRST_FRAME_WAIT_MS * 1_000_000L;
+        while (System.nanoTime() < deadline) {
+            long t = firstFrameNanoTime.getAsLong();
+            if (t > 0) return Math.max(0, (t - startedAt) / 1000);
+            SystemClock.sleep(1);
+        }
+        throw new IOException(side + " reported no output timestamp within " + FIRST_FRAME_WAIT_MS + " ms");
+    }
+
+    // Same extrapolation as the engine: the anchor pairs a media time with its System.nanoTime()
+    @SuppressWarnings("deprecation")
+    private static long firstFrameNanoTime(MediaPlayer player) {
+        MediaTimestamp ts = player.getTimestamp();
+        if (ts == null || ts.getAnchorMediaTimeUs() <= 0 || ts.getMediaClockRate() <= 0) return -1;
+        return ts.getAnchorSytemNanoTime()
+                - (long) (ts.getAnchorMediaTimeUs() * 1000 / ts.getMediaClockRate());
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
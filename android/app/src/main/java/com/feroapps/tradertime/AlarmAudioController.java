@@ -0,0 +1,195 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.media.AudioAttributes;
+import android.media.MediaPlayer;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Owns alarm playback on a dedicated audio thread.
+ *
+ * Callers only post commands (play, stop, switch sound, set volume), so a slow
+ * codec or storage stall never blocks the main thread or the stop button.
+ * The ringing timeout also runs here and reports back on the main thread.
+ */
+public class AlarmAudioController implements Handler.Callback {
+
+    private static final String TAG = "AlarmAudioController";
+
+    private static final int MSG_PLAY = 1;
+    private static final int MSG_STOP = 2;
+    private static final int MSG_SWITCH_SOUND = 3;
+    private static final int MSG_SET_VOLUME = 4;
+    private static final int MSG_TIMEOUT = 5;
+
+    // All callbacks are delivered on the main thread
+    public interface Listener {
+        void onPlaybackStarted();
+
+        // After a stop() command has been carried out on the audio thread
+        void onPlaybackStopped();
+
+        // Playback was stopped by the timeout
+        void onPlaybackTimeout();
+    }
+
+    private static class PlayRequest {
+        final SoundCatalog.Sound sound;
+        final long requestedAtNanos;
+        final long timeoutMs;
+
+        PlayRequest(SoundCatalog.Sound sound, long requestedAtNanos, long timeoutMs) {
+            this.sound = sound;
+            this.requestedAtNanos = requestedAtNanos;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final Handler mainHandler;
+
+    // Confined to the audio thread
+    private MediaPlayer mediaPlayer;
+    private SoundCatalog.Sound currentSound;
+    private float volume = 1.0f;
+
+    public AlarmAudioController(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        this.thread = new HandlerThread("alarm-audio", Process.THREAD_PRIORITY_AUDIO);
+        this.thread.start();
+        this.handler = new Handler(thread.getLooper(), this);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void play(SoundCatalog.Sound sound, long requestedAtNanos, long timeoutMs) {
+        handler.obtainMessage(MSG_PLAY, new PlayRequest(sound, requestedAtNanos, timeoutMs)).sendToTarget();
+    }
+
+    // Jumps the queue so a stop is never stuck behind pending work
+    public void stop() {
+        handler.removeMessages(MSG_PLAY);
+        handler.removeMessages(MSG_SWITCH_SOUND);
+        handler.removeMessages(MSG_TIMEOUT);
+        handler.sendMessageAtFrontOfQueue(handler.obtainMessage(MSG_STOP));
+    }
+
+    // Restarts the ringing timeout without touching playback
+    public void resetTimeout(long timeoutMs) {
+        handler.removeMessages(MSG_TIMEOUT);
+        handler.sendEmptyMessageDelayed(MSG_TIMEOUT, timeoutMs);
+    }
+
+    public void switchSound(SoundCatalog.Sound sound) {
+        handler.obtainMessage(MSG_SWITCH_SOUND, sound).sendToTarget();
+    }
+
+    public void setVolume(float volume) {
+        handler.obtainMessage(MSG_SET_VOLUME, volume).sendToTarget();
+    }
+
+    // Stops playback and lets the thread exit once the queue drains
+    public void quit() {
+        stop();
+        thread.quitSafely();
+    }
+
+    @Override
+    public boolean handleMessage(Message msg) {
+        switch (msg.what) {
+            case MSG_PLAY: {
+                PlayRequest request = (PlayRequest) msg.obj;
+                startPlayback(request.sound, request.requestedAtNanos);
+                handler.removeMessages(MSG_TIMEOUT);
+                handler.sendEmptyMessageDelayed(MSG_TIMEOUT, request.timeoutMs);
+                mainHandler.post(listener::onPlaybackStarted);
+                return true;
+            }
+            case MSG_STOP:
+                stopPlayback();
+                mainHandler.post(listener::onPlaybackStopped);
+                return true;
+            case MSG_SWITCH_SOUND: {
+                SoundCatalog.Sound sound = (SoundCatalog.Sound) msg.obj;
+                if (currentSound != null && currentSound != sound) {
+                    startPlayback(sound, SystemClock.elapsedRealtimeNanos());
+                }
+                return true;
+            }
+            case MSG_SET_VOLUME:
+                volume = (Float) msg.obj;
+                AlarmAudioEngine.setVolume(volume);
+                if (mediaPlayer != null) {
+                    try {
+                        mediaPlayer.setVolume(volume, volume);
+                    } catch (IllegalStateException e) {
+                        Log.w(TAG, "MediaPlayer volume change ignored", e);
+                    }
+                }
+                return true;
+            case MSG_TIMEOUT:
+                Log.w(TAG, "Playback timeout reached");
+                stopPlayback();
+                mainHandler.post(listener::onPlaybackTimeout);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void startPlayback(SoundCatalog.Sound sound, long requestedAtNanos) {
+        stopPlayback();
+        currentSound = sound;
+
+        if (AlarmAudioEngine.play(context, sound, requestedAtNanos)) {
+            AlarmAudioEngine.setVolume(volume);
+            Log.i(TAG, "Alarm sound started from PCM cache: " + sound.id);
+            return;
+        }
+
+        // Not decoded yet (first run after install or update): fall back to MediaPlayer.
+        // Imported sounds only exist in the cache, so they fall back to the default sound.
+        int rawRes = sound.isImported() ? SoundCatalog.bundled().get(0).rawRes : sound.rawRes;
+        try {
+            AudioAttributes attrs = new AudioAttributes.Builder()
+                    .setUsage(AudioAttributes.USAGE_ALARM)
+                    .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                    .build();
+
+            mediaPlayer = MediaPlayer.create(context, rawRes, attrs, 0);
+            if (mediaPlayer != null) {
+                mediaPlayer.setLooping(true);
+                mediaPlayer.setVolume(volume, volume);
+                mediaPlayer.start();
+                Log.i(TAG, "Alarm sound started with MediaPlayer: " + sound.id);
+            } else {
+                Log.e(TAG, "MediaPlayer.create returned null");
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to play alarm sound", e);
+        }
+    }
+
+    private void stopPlayback() {
+        AlarmAudioEngine.stop();
+        if (mediaPlayer != null) {
+            try {
+                if (mediaPlayer.isPlaying()) mediaPlayer.stop();
+                mediaPlayer.release();
+            } catch (Exception e) {
+                Log.e(TAG, "Error stopping MediaPlayer", e);
+            }
+            mediaPlayer = null;
+        }
+        currentSound = null;
+    }
+}
@@ -0,0 +1,281 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.AssetFileDescriptor;
+import android.media.AudioAttributes;
+import android.media.AudioFormat;
+import android.media.AudioTimestamp;
+import android.media.AudioTrack;
+import android.media.MediaExtractor;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Plays alarm sounds from the decoded PCM cache through a looping AudioTrack.
+ *
+ * Bundled sounds are decoded once in the background. At fire time the cached
+ * file is memory-mapped and streamed, so nothing is opened or prepared by a codec.
+ * If a sound is not cached yet, play() returns false and the caller falls back
+ * to MediaPlayer.
+ */
+public class AlarmAudioEngine {
+
+    private static final String TAG = "AlarmAudioEngine";
+
+    private static final int CHUNK_BYTES = 8192;
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor();
+    private static final Map<String, PcmSoundCache.PcmSound> LOADED = new ConcurrentHashMap<>();
+
+    private static LoopingTrack current;
+    private static volatile long lastStartLatencyUs = -1;
+
+    // Decodes any bundled sound that is missing or older than the installed APK
+    public static void preloadBundled(Context context) {
+        final Context app = context.getApplicationContext();
+        DECODER.execute(() -> {
+            long apkUpdatedAt = 0;
+            try {
+                apkUpdatedAt = app.getPackageManager()
+                        .getPackageInfo(app.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException ignored) {
+            }
+
+            for (SoundCatalog.Sound sound : SoundCatalog.bundled()) {
+                // Bundled caches used to be in credential storage
+                if (DirectBootStorage.isUserUnlocked(app)) {
+                    File legacy = new File(PcmSoundCache.cacheDir(app), "bundled_" + sound.resName + ".pcm");
+                    if (legacy.exists() && !legacy.delete()) Log.w(TAG, "Could not delete " + legacy);
+                }
+
+                File file = cacheFile(app, sound);
+                if (file.exists() && file.lastModified() < apkUpdatedAt) {
+                    LOADED.remove(sound.id);
+                    if (!file.delete()) Log.w(TAG, "Could not delete stale cache: " + file);
+                }
+                try {
+                    load(app, sound);
+                } catch (Exception e) {
+                    Log.w(TAG, "Preload failed for " + sound.id, e);
+                }
+            }
+            Log.i(TAG, "Bundled sounds ready: " + LOADED.size() + "/" + SoundCatalog.bundled().size());
+        });
+    }
+
+    // Returns the mapped sound, decoding it into the cache first if needed. Blocking.
+    static PcmSoundCache.PcmSound load(Context context, SoundCatalog.Sound sound) throws IOException {
+        PcmSoundCache.PcmSound pcm = LOADED.get(sound.id);
+        if (pcm != null) return pcm;
+
+        File file = cacheFile(context, sound);
+        if (!file.exists()) {
+            if (sound.isImported()) throw new IOException("Imported sound missing from cache: " + sound.id);
+
+            MediaExtractor extractor = new MediaExtractor();
+            try (AssetFileDescriptor afd = context.getResources().openRawResourceFd(sound.rawRes)) {
+                extractor.setDataSource(afd);
+            } catch (IOException | RuntimeException e) {
+                extractor.release();
+                throw e;
+            }
+            PcmSoundCache.decode(extractor, file);
+        }
+
+        pcm = PcmSoundCache.map(file);
+        LOADED.put(sound.id, pcm);
+        return pcm;
+    }
+
+    static void evict(SoundCatalog.Sound sound) {
+        LOADED.remove(sound.id);
+    }
+
+    public static boolean play(Context context, SoundCatalog.Sound sound, long requestedAtNanos) {
+        return play(context, sound, requestedAtNanos, 1.0f);
+    }
+
+    static boolean play(Context context, SoundCatalog.Sound sound, long requestedAtNanos, float volume) {
+        PcmSoundCache.PcmSound pcm = LOADED.get(sound.id);
+        if (pcm == null) {
+            if (sound.isImported() && !DirectBootStorage.isUserUnlocked(context)) return false;
+            File file = cacheFile(context, sound);
+            if (!file.exists()) {
+                Log.w(TAG, "Sound not cached yet: " + sound.id);
+                if (!sound.isImported()) preloadBundled(context);
+                return false;
+            }
+            try {
+                pcm = PcmSoundCache.map(file);
+                LOADED.put(sound.id, pcm);
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping unreadable cache: " + file, e);
+                if (!file.delete()) Log.w(TAG, "Could not delete " + file);
+                return false;
+            }
+        }
+        return start(pcm, sound.id, requestedAtNanos, volume);
+    }
+
+    private static synchronized boolean start(PcmSoundCache.PcmSound sound, String key,
+                                              long requestedAtNanos, float volume) {
+        stop();
+        try {
+            LoopingTrack track = new LoopingTrack(sound, key, requestedAtNanos);
+            track.setVolume(volume);
+            track.start();
+            current = track;
+            return true;
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to start AudioTrack for " + key, e);
+            return false;
+        }
+    }
+
+    public static synchronized void stop() {
+        if (current != null) {
+            current.stop();
+            current = null;
+        }
+    }
+
+    public static synchronized void setVolume(float volume) {
+        if (current != null) current.setVolume(volume);
+    }
+
+    public static synchronized boolean isPlaying() {
+        return current != null;
+    }
+
+    // Time from the start request to the first PCM chunk queued, or -1 if unknown
+    public static long getLastStartLatencyUs() {
+        return lastStartLatencyUs;
+    }
+
+    // System.nanoTime() at which the current track's first frame reached the output, or -1
+    // until the output reports a position past it
+    static synchronized long getFirstFrameNanoTime() {
+        return current != null ? current.firstFrameNanoTime() : -1;
+    }
+
+    private static File cacheFile(Context context, SoundCatalog.Sound sound) {
+        if (sound.isImported()) return SoundImporter.cacheFile(context, sound.contentHash);
+        // Bundled sounds must be playable before first unlock
+        return new File(PcmSoundCache.cacheDir(DirectBootStorage.context(context)),
+                "bundled_" + sound.resName + ".pcm");
+    }
+
+    private static class LoopingTrack implements Runnable {
+        private final AudioTrack track;
+        private final ByteBuffer data;
+        private final String key;
+        private final long requestedAtNanos;
+        private volatile boolean running = true;
+        private Thread thread;
+
+        LoopingTrack(PcmSoundCache.PcmSound sound, String key, long requestedAtNanos) {
+            if (sound.data.capacity() == 0) throw new IllegalArgumentException("Empty sound: " + key);
+
+            int channelMask = sound.channelCount == 1
+                    ? AudioFormat.CHANNEL_OUT_MONO
+                    : AudioFormat.CHANNEL_OUT_STEREO;
+            int minBuffer = AudioTrack.getMinBufferSize(
+                    sound.sampleRate, channelMask, AudioFormat.ENCODING_PCM_16BIT);
+
+            track = new AudioTrack.Builder()
+                    .setAudioAttributes(new AudioAttributes.Builder()
+                            .setUsage(AudioAttributes.USAGE_ALARM)
+                            .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                            .build())
+                    .setAudioFormat(new AudioFormat.Builder()
+                            .setEncoding(AudioFormat.ENCODING_PCM_16BIT)
+                            .setSampleRate(sound.sampleRate)
+                            .setChannelMask(channelMask)
+                            .build())
+                    .setTransferMode(AudioTrack.MODE_STREAM)
+                    .setBufferSizeInBytes(Math.max(minBuffer, CHUNK_BYTES) * 2)
+                    .build();
+
+            if (track.getState() != AudioTrack.STATE_INITIALIZED) {
+                track.release();
+                throw new IllegalStateException("AudioTrack not initialized");
+            }
+
+            this.data = sound.data.duplicate();
+            this.key = key;
+            this.requestedAtNanos = requestedAtNanos;
+        }
+
+        void start() {
+            track.play();
+            thread = new Thread(this, "alarm-pcm-" + key);
+            thread.start();
+        }
+
+        void setVolume(float volume) {
+            track.setVolume(volume);
+        }
+
+        // Extrapolated back from the latest output timestamp, which is on the System.nanoTime() clock
+        long firstFrameNanoTime() {
+            AudioTimestamp ts = new AudioTimestamp();
+            if (!track.getTimestamp(ts) || ts.framePosition <= 0) return -1;
+            return ts.nanoTime - ts.framePosition * 1_000_000_000L / track.getSampleRate();
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_URGENT_AUDIO);
+            boolean first = true;
+
+            while (running) {
+                if (!data.hasRemaining()) data.rewind();
+
+                ByteBuffer chunk = data.duplicate();
+                chunk.limit(Math.min(chunk.position() + CHUNK_BYTES, chunk.capacity()));
+                int size = chunk.remaining();
+
+                int written = track.write(chunk, size, AudioTrack.WRITE_BLOCKING);
+                if (written < 0) {
+                    Log.e(TAG, "AudioTrack.write failed: " + written);
+                    break;
+                }
+                data.position(data.position() + written);
+
+                if (first && written > 0) {
+                    first = false;
+                    lastStartLatencyUs = (SystemClock.elapsedRealtimeNanos() - requestedAtNanos) / 1000;
+                    Log.i(TAG, "First PCM queued for " + key + " after " + lastStartLatencyUs + " us");
+                }
+            }
+        }
+
+        void stop() {
+            running = false;
+            try {
+                track.pause();
+                track.flush();
+            } catch (IllegalStateException e) {
+                Log.w(TAG, "AudioTrack already stopped", e);
+            }
+            if (thread != null) {
+                try {
+                    thread.join(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            track.release();
+        }
+    }
+}
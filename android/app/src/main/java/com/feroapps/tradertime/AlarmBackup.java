@@ -0,0 +1,243 @@
+package com.feroapps.tradertime;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the alarm store and the native alarm settings, for moving
+ * to a new phone without re-creating every alarm through JS.
+ *
+ * Layout, big-endian:
+ *   int MAGIC, int VERSION,
+ *   sections of (int tag, int length, byte[length] payload), ending with SECTION_END,
+ *   long CRC32 of everything before it.
+ * Readers skip sections they don't know, so newer files still import their alarms.
+ * The fixed session table is built in, so its settings are the only session state.
+ * SECTION_CLIENT carries the app UI's own copy of its alarms, opaque to this
+ * class, so the UI can restore what the native store doesn't know about.
+ */
+public class AlarmBackup {
+
+    private static final String TAG = "AlarmBackup";
+
+    private static final int MAGIC = 0x54544258; // "TTBX"
+    private static final int VERSION = 1;
+
+    private static final int SECTION_END = 0;
+    private static final int SECTION_SETTINGS = 1;
+    private static final int SECTION_ALARMS = 2;
+    private static final int SECTION_CLIENT = 3;
+
+    // Far above any real alarm set; guards against reading a wrong file into memory
+    private static final int MAX_BYTES = 16 * 1024 * 1024;
+
+    public static class ExportResult {
+        public int alarms;
+        public long bytes;
+    }
+
+    public static class ImportResult {
+        public int alarms;
+        public int removed;
+        public boolean settingsRestored;
+        // Null if the backup has no client section
+        public String clientData;
+        public AlarmRescheduler.Result arming;
+        public long elapsedMs;
+    }
+
+    // Parsed in full before anything is applied
+    private static class Settings {
+        int catchUpWindowMinutes;
+        int snoozeMaxCount;
+        int[] snoozeTiers;
+    }
+
+    // Blocking; run on the store executor so the snapshot is consistent with pending writes.
+    // clientData is stored as-is and handed back by importFrom(); may be null.
+    public static ExportResult export(Context context, OutputStream out, String clientData) throws IOException {
+        ByteArrayOutputStream settings = new ByteArrayOutputStream();
+        writeSettings(context, new DataOutputStream(settings));
+
+        ByteArrayOutputStream alarms = new ByteArrayOutputStream();
+        DataOutputStream alarmsOut = new DataOutputStream(alarms);
+        List<AlarmRecord> records = AlarmStore.loadAll(context);
+        alarmsOut.writeInt(records.size());
+        for (AlarmRecord record : records) writeRecord(alarmsOut, record);
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(alarms.size() + settings.size() + 64);
+        DataOutputStream data = new DataOutputStream(file);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        writeSection(data, SECTION_SETTINGS, settings);
+        writeSection(data, SECTION_ALARMS, alarms);
+        if (clientData != null) {
+            ByteArrayOutputStream client = new ByteArrayOutputStream();
+            client.write(clientData.getBytes(StandardCharsets.UTF_8));
+            writeSection(data, SECTION_CLIENT, client);
+        }
+        data.writeInt(SECTION_END);
+        data.writeInt(0);
+
+        CRC32 crc = new CRC32();
+        crc.update(file.toByteArray(), 0, file.size());
+        data.writeLong(crc.getValue());
+
+        file.writeTo(out);
+        out.flush();
+
+        ExportResult result = new ExportResult();
+        result.alarms = records.size();
+        result.bytes = file.size();
+        Log.i(TAG, "Exported " + result.alarms + " alarms in " + result.bytes + " bytes");
+        return result;
+    }
+
+    // Verifies and parses the whole file before touching the store or any setting,
+    // then writes it in one transaction and arms everything in one rescheduler pass. Blocking.
+    public static ImportResult importFrom(Context context, InputStream in, boolean replace) throws IOException {
+        long startedAt = SystemClock.elapsedRealtime();
+        byte[] bytes = readAll(in);
+        if (bytes.length < 16) throw new IOException("Not an alarm backup");
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        DataInputStream trailer = new DataInputStream(
+                new ByteArrayInputStream(bytes, bytes.length - 8, 8));
+        if (trailer.readLong() != crc.getValue()) throw new IOException("Backup checksum mismatch");
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 8));
+        if (data.readInt() != MAGIC) throw new IOException("Not an alarm backup");
+        int version = data.readInt();
+        if (version > VERSION) throw new IOException("Backup version " + version + " is newer than this app");
+
+        List<AlarmRecord> records = null;
+        Settings settings = null;
+        String clientData = null;
+        while (true) {
+            int tag = data.readInt();
+            int length = data.readInt();
+            if (tag == SECTION_END) break;
+            if (length < 0 || length > data.available()) throw new IOException("Truncated backup section " + tag);
+            byte[] payload = new byte[length];
+            data.readFully(payload);
+            if (tag == SECTION_SETTINGS) {
+                settings = readSettings(new DataInputStream(new ByteArrayInputStream(payload)));
+            } else if (tag == SECTION_CLIENT) {
+                clientData = new String(payload, StandardCharsets.UTF_8);
+            } else if (tag == SECTION_ALARMS) {
+                records = readRecords(new DataInputStream(new ByteArrayInputStream(payload)));
+            } else {
+                Log.w(TAG, "Skipping unknown backup section " + tag);
+            }
+        }
+        if (records == null) throw new IOException("Backup has no alarm section");
+
+        ImportResult result = new ImportResult();
+        List<AlarmRecord> removals = new ArrayList<>();
+        if (replace) {
+            Set<String> kept = new HashSet<>();
+            for (AlarmRecord record : records) kept.add(record.alarmId);
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            for (AlarmRecord existing : AlarmStore.loadAll(context)) {
+                if (kept.contains(existing.alarmId)) continue;
+                UserAlarmScheduler.cancel(context, alarmManager, existing);
+                removals.add(existing);
+            }
+        }
+        AlarmStore.applyBatch(context, records, removals);
+        result.alarms = records.size();
+        result.removed = removals.size();
+        if (settings != null) {
+            applySettings(context, settings);
+            result.settingsRestored = true;
+        }
+        result.clientData = clientData;
+
+        result.arming = AlarmRescheduler.run(context, AlarmRescheduler.REASON_RESTORE, 0);
+        result.elapsedMs = SystemClock.elapsedRealtime() - startedAt;
+        Log.i(TAG, "Imported " + result.alarms + " alarms (" + result.removed + " removed), armed "
+                + result.arming.armed + " in " + result.elapsedMs + " ms");
+        return result;
+    }
+
+    private static void writeSection(DataOutputStream data, int tag, ByteArrayOutputStream payload)
+            throws IOException {
+        data.writeInt(tag);
+        data.writeInt(payload.size());
+        payload.writeTo(data);
+    }
+
+    private static void writeSettings(Context context, DataOutputStream out) throws IOException {
+        out.writeInt(CatchUpPolicy.getWindowMinutes(context));
+        out.writeInt(SnoozePolicy.getMaxCount(context));
+        int[] tiers = SnoozePolicy.getDurationsMinutes(context);
+        out.writeInt(tiers.length);
+        for (int minutes : tiers) out.writeInt(minutes);
+    }
+
+    private static Settings readSettings(DataInputStream in) throws IOException {
+        Settings settings = new Settings();
+        settings.catchUpWindowMinutes = in.readInt();
+        settings.snoozeMaxCount = in.readInt();
+        int count = in.readInt();
+        if (count < 0 || count > SnoozePolicy.MAX_TIERS) throw new IOException("Bad snooze tier count " + count);
+        settings.snoozeTiers = new int[count];
+        for (int i = 0; i < count; i++) settings.snoozeTiers[i] = in.readInt();
+        return settings;
+    }
+
+    private static void applySettings(Context context, Settings settings) {
+        CatchUpPolicy.setWindowMinutes(context, settings.catchUpWindowMinutes);
+        SnoozePolicy.set(context, settings.snoozeTiers, settings.snoozeMaxCount);
+    }
+
+    private static void writeRecord(DataOutputStream out, AlarmRecord record) throws IOException {
+        out.writeUTF(record.alarmId);
+        out.writeUTF(record.label);
+        out.writeLong(record.triggerTimeMs);
+        out.writeUTF(record.soundId);
+        out.writeInt(record.priority);
+        out.writeUTF(record.repeat);
+        out.writeInt(record.repeatDays);
+        out.writeLong(record.firedAtMs);
+    }
+
+    private static List<AlarmRecord> readRecords(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Bad alarm count " + count);
+        List<AlarmRecord> records = new ArrayList<>(Math.min(count, 4096));
+        for (int i = 0; i < count; i++) {
+            records.add(new AlarmRecord(in.readUTF(), in.readUTF(), in.readLong(), in.readUTF(),
+                    in.readInt(), in.readUTF(), in.readInt(), in.readLong()));
+        }
+        return records;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+            if (out.size() > MAX_BYTES) throw new IOException("Backup is too large");
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,220 @@
+package com.feroapps.tradertime;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SQLite schema behind AlarmStore.
+ *
+ * One row per user alarm, keyed by alarm id, with secondary indexes on trigger
+ * time (next due, date ranges, catch-up) and label. The database lives in
+ * device-protected storage and runs in WAL mode, so the fire path can read
+ * while a batch write is in progress. Created on first open by migrating the
+ * old TraderTimeAlarms preferences.
+ *
+ * Each row also owns its AlarmReceiver PendingIntent request code. Codes are
+ * handed out densely from FIRST_REQUEST_CODE; a trigger returns a deleted row's
+ * code to the free list, and the lowest free code is reused first.
+ *
+ * onCreate and onUpgrade run in SQLite's schema transaction and stay pure SQL;
+ * anything with side effects waits until the database is open.
+ */
+public class AlarmDatabase extends SQLiteOpenHelper {
+
+    private static final String TAG = "AlarmDatabase";
+
+    private static final String DB_NAME = "trader_time_alarms.db";
+    // 2: per-row version for compare-and-swap writes
+    // 3: allocated PendingIntent request codes
+    private static final int DB_VERSION = 3;
+
+    static final String TABLE = "alarms";
+    static final String COL_ID = "alarm_id";
+    static final String COL_LABEL = "label";
+    static final String COL_TRIGGER = "trigger_time_ms";
+    static final String COL_SOUND = "sound_id";
+    static final String COL_PRIORITY = "priority";
+    static final String COL_REPEAT = "repeat";
+    static final String COL_REPEAT_DAYS = "repeat_days";
+    static final String COL_FIRED_AT = "fired_at_ms";
+    static final String COL_VERSION = "version";
+    static final String COL_REQUEST_CODE = "request_code";
+
+    private static final String FREE_CODES_TABLE = "free_request_codes";
+    private static final String COL_CODE = "code";
+    static final int FIRST_REQUEST_CODE = 1;
+
+    // Column order used by every SELECT, read back by fromCursor()
+    static final String[] COLUMNS = {
+            COL_ID, COL_LABEL, COL_TRIGGER, COL_SOUND, COL_PRIORITY, COL_REPEAT, COL_REPEAT_DAYS, COL_FIRED_AT,
+            COL_VERSION, COL_REQUEST_CODE
+    };
+
+    // The prefs store this table replaces
+    private static final String LEGACY_PREFS_NAME = "TraderTimeAlarms";
+    private static final String LEGACY_ALARMS_KEY = "scheduled_alarms";
+
+    private static AlarmDatabase instance;
+
+    private final Context context;
+
+    public static synchronized AlarmDatabase get(Context context) {
+        if (instance == null) {
+            instance = new AlarmDatabase(DirectBootStorage.context(context));
+        }
+        return instance;
+    }
+
+    // For JVM tests, which get a fresh data directory per case
+    static synchronized void closeInstance() {
+        if (instance != null) instance.close();
+        instance = null;
+    }
+
+    private AlarmDatabase(Context deviceContext) {
+        super(deviceContext, DB_NAME, null, DB_VERSION);
+        this.context = deviceContext;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + COL_ID + " TEXT PRIMARY KEY NOT NULL, "
+                + COL_LABEL + " TEXT NOT NULL, "
+                + COL_TRIGGER + " INTEGER NOT NULL, "
+                + COL_SOUND + " TEXT NOT NULL, "
+                + COL_PRIORITY + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_REPEAT + " TEXT NOT NULL DEFAULT '" + AlarmRecord.REPEAT_NONE + "', "
+                + COL_REPEAT_DAYS + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_FIRED_AT + " INTEGER NOT NULL DEFAULT 0, "
+                + COL_VERSION + " INTEGER NOT NULL DEFAULT 1, "
+                + COL_REQUEST_CODE + " INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("CREATE INDEX idx_alarms_trigger ON " + TABLE + " (" + COL_TRIGGER + ")");
+        db.execSQL("CREATE INDEX idx_alarms_label ON " + TABLE + " (" + COL_LABEL + ")");
+        createRequestCodeSchema(db);
+        migrateFromPrefs(db);
+    }
+
+    // Runs after the create or upgrade transaction has committed
+    @Override
+    public void onOpen(SQLiteDatabase db) {
+        SharedPreferences prefs = DirectBootStorage.prefs(context, LEGACY_PREFS_NAME);
+        if (prefs.contains(LEGACY_ALARMS_KEY)) {
+            prefs.edit().remove(LEGACY_ALARMS_KEY).apply();
+            Log.i(TAG, "Removed migrated alarms from preferences");
+        }
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < 2) {
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_VERSION + " INTEGER NOT NULL DEFAULT 1");
+        }
+        if (oldVersion < 3) {
+            db.execSQL("ALTER TABLE " + TABLE + " ADD COLUMN " + COL_REQUEST_CODE + " INTEGER NOT NULL DEFAULT 0");
+            List<String> ids = new ArrayList<>();
+            try (Cursor c = db.rawQuery("SELECT " + COL_ID + " FROM " + TABLE + " ORDER BY " + COL_TRIGGER, null)) {
+                while (c.moveToNext()) ids.add(c.getString(0));
+            }
+            for (int i = 0; i < ids.size(); i++) {
+                ContentValues values = new ContentValues(1);
+                values.put(COL_REQUEST_CODE, FIRST_REQUEST_CODE + i);
+                db.update(TABLE, values, COL_ID + " = ?", new String[]{ids.get(i)});
+            }
+            // The alarms stay armed under their hashCode codes until the next reschedule pass
+            // moves them, see UserAlarmScheduler.cancelLegacyRegistrations()
+            createRequestCodeSchema(db);
+        }
+    }
+
+    private static void createRequestCodeSchema(SQLiteDatabase db) {
+        db.execSQL("CREATE UNIQUE INDEX idx_alarms_request_code ON " + TABLE + " (" + COL_REQUEST_CODE + ")");
+        db.execSQL("CREATE TABLE " + FREE_CODES_TABLE + " (" + COL_CODE + " INTEGER PRIMARY KEY NOT NULL)");
+        // Covers every delete path, including compaction's bulk delete, in the deleting transaction
+        db.execSQL("CREATE TRIGGER alarms_free_request_code AFTER DELETE ON " + TABLE + " BEGIN "
+                + "INSERT OR IGNORE INTO " + FREE_CODES_TABLE + " (" + COL_CODE + ") VALUES (old."
+                + COL_REQUEST_CODE + "); END");
+    }
+
+    // Allocation and insert share one transaction, so two inserts can never take the same code
+    static void insert(SQLiteDatabase db, AlarmRecord record) {
+        db.beginTransaction();
+        try {
+            ContentValues values = toValues(record);
+            values.put(COL_REQUEST_CODE, allocateRequestCode(db));
+            db.insertOrThrow(TABLE, null, values);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    // Lowest freed code, else one past the highest in use. Codes below the highest are
+    // either in use or on the free list, so the free list is only empty when the range is full.
+    private static int allocateRequestCode(SQLiteDatabase db) {
+        try (Cursor c = db.rawQuery("SELECT MIN(" + COL_CODE + ") FROM " + FREE_CODES_TABLE, null)) {
+            if (c.moveToFirst() && !c.isNull(0)) {
+                int code = c.getInt(0);
+                db.delete(FREE_CODES_TABLE, COL_CODE + " = ?", new String[]{Integer.toString(code)});
+                return code;
+            }
+        }
+        try (Cursor c = db.rawQuery("SELECT MAX(" + COL_REQUEST_CODE + ") FROM " + TABLE, null)) {
+            return c.moveToFirst() && !c.isNull(0)
+                    ? Math.max(FIRST_REQUEST_CODE, c.getInt(0) + 1)
+                    : FIRST_REQUEST_CODE;
+        }
+    }
+
+    // Runs inside onCreate's transaction and only reads the prefs; onOpen() removes
+    // them once the table is committed, so a failed create loses nothing
+    private void migrateFromPrefs(SQLiteDatabase db) {
+        SharedPreferences prefs = DirectBootStorage.prefs(context, LEGACY_PREFS_NAME);
+        Set<String> alarmSet = prefs.getStringSet(LEGACY_ALARMS_KEY, null);
+        if (alarmSet == null || alarmSet.isEmpty()) return;
+
+        int migrated = 0;
+        for (String json : alarmSet) {
+            try {
+                insert(db, AlarmRecord.fromJson(json));
+                migrated++;
+            } catch (IOException | SQLException e) {
+                Log.e(TAG, "Dropping unreadable alarm entry during migration", e);
+            }
+        }
+        Log.i(TAG, "Migrated " + migrated + " of " + alarmSet.size() + " alarms from preferences");
+    }
+
+    // Everything but the request code, which only insert() assigns
+    private static ContentValues toValues(AlarmRecord record) {
+        ContentValues values = new ContentValues(COLUMNS.length);
+        values.put(COL_ID, record.alarmId);
+        values.put(COL_LABEL, record.label);
+        values.put(COL_TRIGGER, record.triggerTimeMs);
+        values.put(COL_SOUND, record.soundId);
+        values.put(COL_PRIORITY, record.priority);
+        values.put(COL_REPEAT, record.repeat);
+        values.put(COL_REPEAT_DAYS, record.repeatDays);
+        values.put(COL_FIRED_AT, record.firedAtMs);
+        // Seeded from the clock, so a re-created row never reuses the versions of the one it replaced
+        values.put(COL_VERSION, System.currentTimeMillis());
+        return values;
+    }
+
+    static AlarmRecord fromCursor(Cursor c) {
+        return new AlarmRecord(c.getString(0), c.getString(1), c.getLong(2), c.getString(3),
+                c.getInt(4), c.getString(5), c.getInt(6), c.getLong(7), c.getLong(8), c.getInt(9));
+    }
+}
@@ -0,0 +1,124 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+
+import java.util.Collection;
+
+/**
+ * Native alarm events for JS listeners on the UserAlarm plugin.
+ *
+ * Receivers and the sound service don't have a plugin instance, so events go
+ * through a process-wide sink that UserAlarmPlugin installs while the bridge is
+ * alive. Without a sink (no WebView) events are dropped; JS resyncs with
+ * getNextDue() when it starts.
+ */
+public class AlarmEvents {
+
+    private static final String TAG = "AlarmEvents";
+
+    public static final String ALARM_FIRED = "alarmFired";
+    public static final String ALARM_STOPPED = "alarmStopped";
+    public static final String ALARM_SNOOZED = "alarmSnoozed";
+    public static final String ALARMS_RESCHEDULED = "alarmsRescheduled";
+    public static final String NEXT_DUE_CHANGED = "nextDueChanged";
+
+    public static final String KIND_USER = "user";
+    public static final String KIND_SESSION = "session";
+
+    public interface Sink {
+        void emit(String event, JSObject data);
+    }
+
+    private static volatile Sink sink;
+
+    /** The soonest armed user alarm or fixed session. */
+    public static class NextDue {
+        public final long triggerTimeMs;
+        public final String kind;
+        public final String id;
+        public final String label;
+
+        NextDue(long triggerTimeMs, String kind, String id, String label) {
+            this.triggerTimeMs = triggerTimeMs;
+            this.kind = kind;
+            this.id = id;
+            this.label = label;
+        }
+
+        public JSObject toJson() {
+            JSObject obj = new JSObject();
+            obj.put("triggerTimeMs", triggerTimeMs);
+            obj.put("kind", kind);
+            obj.put("id", id);
+            obj.put("label", label);
+            return obj;
+        }
+    }
+
+    static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    // Only clears the sink if it is still the given one, so a newer bridge keeps its own
+    static void clearSink(Sink oldSink) {
+        if (sink == oldSink) sink = null;
+    }
+
+    public static boolean hasSink() {
+        return sink != null;
+    }
+
+    public static void emit(String event, JSObject data) {
+        Sink s = sink;
+        if (s == null) return;
+        try {
+            s.emit(event, data);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to deliver " + event, e);
+        }
+    }
+
+    public static void alarmFired(String kind, String id, String label, long firedAtMs) {
+        JSObject data = new JSObject();
+        data.put("kind", kind);
+        data.put("id", id);
+        data.put("label", label);
+        data.put("firedAtMs", firedAtMs);
+        emit(ALARM_FIRED, data);
+    }
+
+    public static void alarmStopped(Collection<String> alarmIds) {
+        JSObject data = new JSObject();
+        data.put("alarmIds", new JSArray(alarmIds));
+        emit(ALARM_STOPPED, data);
+    }
+
+    public static void alarmSnoozed(String alarmId, String snoozeId, long triggerTimeMs, int count) {
+        JSObject data = new JSObject();
+        data.put("alarmId", alarmId);
+        data.put("snoozeId", snoozeId);
+        data.put("triggerTimeMs", triggerTimeMs);
+        data.put("count", count);
+        emit(ALARM_SNOOZED, data);
+    }
+
+    // Recomputed on the store executor so it sees the write that triggered it
+    public static void nextDueChangedAsync(Context context) {
+        if (!hasSink()) return;
+        Context appContext = context.getApplicationContext();
+        AlarmStore.executeAsync(() -> {
+            NextDue next = nextDue(appContext, System.currentTimeMillis());
+            emit(NEXT_DUE_CHANGED, next != null ? next.toJson() : new JSObject());
+        });
+    }
+
+    // Blocking the first time, while the occurrence horizon is built
+    public static NextDue nextDue(Context context, long nowMs) {
+        OccurrenceHorizon.Occurrence next = OccurrenceHorizon.next(context, nowMs);
+        return next != null ? new NextDue(next.timeMs, next.kind, next.id, next.label) : null;
+    }
+}
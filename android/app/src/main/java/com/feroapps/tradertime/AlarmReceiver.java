@@ -1,18 +1,27 @@
 package com.feroapps.tradertime;
 
+import android.app.AlarmManager;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.core.content.ContextCompat;
 
+import java.util.Collections;
+
 public class AlarmReceiver extends BroadcastReceiver {
 
     private static final String TAG = "AlarmReceiver";
 
+    // Set on every registration under an allocated request code, so none of them can match
+    // a legacy hashCode registration of the same code
+    public static final String ACTION_FIRE = "com.feroapps.tradertime.ACTION_USER_ALARM";
+
     public static final String EXTRA_ALARM_ID = "alarm_id";
     public static final String EXTRA_ALARM_LABEL = "alarm_label";
     public static final String EXTRA_SOUND_ID = "sound_id";
+    public static final String EXTRA_PRIORITY = "priority";
 
     @Override
     public void onReceive(Context context, Intent intent) {
@@ -22,13 +31,24 @@ public class AlarmReceiver extends BroadcastReceiver {
         String alarmId = intent.getStringExtra(EXTRA_ALARM_ID);
         String label = intent.getStringExtra(EXTRA_ALARM_LABEL);
         String soundId = intent.getStringExtra(EXTRA_SOUND_ID);
+        int priority = intent.getIntExtra(EXTRA_PRIORITY, 0);
 
         Log.i(TAG, "alarmId: " + alarmId);
         Log.i(TAG, "label: " + label);
         Log.i(TAG, "soundId: " + soundId);
+        Log.i(TAG, "priority: " + priority);
+
+        // A fresh occurrence starts a new snooze chain, even if the last one timed out or the
+        // service was killed instead of being stopped. Before the ring, which reads the count.
+        if (alarmId != null && !alarmId.endsWith(AlarmSnoozer.SNOOZE_SUFFIX)) {
+            AlarmSnoozer.resetCounts(context, Collections.singletonList(alarmId));
+        }
 
         // Start AlarmActivity to wake screen and open app
         Intent alarmActivityIntent = new Intent(context, AlarmActivity.class);
+        alarmActivityIntent.putExtra(AlarmSoundService.EXTRA_ALARM_ID, alarmId);
+        alarmActivityIntent.putExtra(AlarmSoundService.EXTRA_ALARM_LABEL, label);
+        alarmActivityIntent.putExtra(AlarmActivity.EXTRA_FIRED_AT_ELAPSED, SystemClock.elapsedRealtime());
         alarmActivityIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
         context.startActivity(alarmActivityIntent);
 
@@ -36,10 +56,55 @@ public class AlarmReceiver extends BroadcastReceiver {
         serviceIntent.putExtra(AlarmSoundService.EXTRA_ALARM_ID, alarmId);
         serviceIntent.putExtra(AlarmSoundService.EXTRA_ALARM_LABEL, label);
         serviceIntent.putExtra(AlarmSoundService.EXTRA_SOUND_ID, soundId);
+        serviceIntent.putExtra(AlarmSoundService.EXTRA_PRIORITY, priority);
 
         Log.i(TAG, "Starting AlarmSoundService as foreground...");
         ContextCompat.startForegroundService(context, serviceIntent);
+        AlarmEvents.alarmFired(AlarmEvents.KIND_USER, alarmId, label, System.currentTimeMillis());
+
+        // Record the fire so catch-up after a reboot does not report it as missed
+        if (alarmId != null) {
+            PendingResult pendingResult = goAsync();
+            long firedAtMs = System.currentTimeMillis();
+            AlarmStore.executeAsync(() -> {
+                try {
+                    recordFire(context, alarmId, firedAtMs);
+                } finally {
+                    pendingResult.finish();
+                }
+            });
+        }
         Log.i(TAG, "===== AlarmReceiver.onReceive COMPLETED =====");
     }
+
+    // Runs on the store executor. Only single-row writes: fired one-shots are left for the
+    // idle compaction job, whose all-stripe lock has no place on the fire path.
+    static void recordFire(Context context, String alarmId, long firedAtMs) {
+        WakeupLedger.record(context, WakeupLedger.SOURCE_USER_ALARM, firedAtMs);
+        AlarmStore.markFired(context, alarmId, firedAtMs);
+        rearmRecurring(context, alarmId, firedAtMs);
+        AlarmEvents.nextDueChangedAsync(context);
+    }
+
+    // The ringing screen is native, so the JS stop and resume paths that used to roll recurring
+    // alarms no longer run; store the next occurrence and arm it here. Returns what was armed.
+    static AlarmRecord rearmRecurring(Context context, String alarmId, long firedAtMs) {
+        AlarmRecord rolled = AlarmStore.update(context, alarmId, current -> {
+            if (current == null || !current.isRecurring()) return current;
+            long nextTriggerMs = current.nextOccurrenceAfter(firedAtMs);
+            return nextTriggerMs != current.triggerTimeMs ? current.withTriggerTime(nextTriggerMs) : current;
+        });
+        if (rolled == null || !rolled.isRecurring()) return null;
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        boolean exact = UserAlarmScheduler.canScheduleExact(alarmManager);
+        // Armed from the row under its stripe lock, so a cancel in between is never undone
+        return AlarmStore.readLocked(context, alarmId, current -> {
+            if (current == null || current.triggerTimeMs <= firedAtMs) return null;
+            UserAlarmScheduler.arm(context, alarmManager, current, exact);
+            Log.i(TAG, "Recurring alarm " + alarmId + " re-armed for " + current.triggerTimeMs);
+            return current;
+        });
+    }
 }
 
@@ -0,0 +1,206 @@
+package com.feroapps.tradertime;
+
+import android.util.JsonReader;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * One user alarm as persisted by AlarmStore.
+ */
+public class AlarmRecord {
+
+    public static final String DEFAULT_LABEL = "Trader Time Alert";
+
+    // Recurrence, evaluated in UTC like the JS scheduler
+    public static final String REPEAT_NONE = "none";
+    public static final String REPEAT_WEEKLY = "weekly";
+    // On UTC day-of-month repeatDays (1-31, 0 = the trigger's own day), overflowing into the
+    // next month like JS Date.setUTCMonth: the 31st rings on Mar 3 after a 28-day February
+    public static final String REPEAT_MONTHLY = "monthly";
+    // On the UTC weekdays in repeatDays (bit 0 = Sunday)
+    public static final String REPEAT_DAYS = "days";
+
+    public final String alarmId;
+    public final String label;
+    public final long triggerTimeMs;
+    public final String soundId;
+    public final int priority;
+    public final String repeat;
+    public final int repeatDays;
+    // When the alarm last rang, 0 if never
+    public final long firedAtMs;
+    // Store row version this record was read at; 0 for records not read from the store.
+    // Writes of a versioned record only succeed if the row is still at that version.
+    public final long version;
+    // PendingIntent request code allocated by the store on first insert; 0 until then
+    public final int requestCode;
+
+    public AlarmRecord(String alarmId, String label, long triggerTimeMs, String soundId, int priority) {
+        this(alarmId, label, triggerTimeMs, soundId, priority, REPEAT_NONE, 0, 0);
+    }
+
+    public AlarmRecord(String alarmId, String label, long triggerTimeMs, String soundId, int priority,
+                       String repeat, int repeatDays, long firedAtMs) {
+        this(alarmId, label, triggerTimeMs, soundId, priority, repeat, repeatDays, firedAtMs, 0, 0);
+    }
+
+    AlarmRecord(String alarmId, String label, long triggerTimeMs, String soundId, int priority,
+                String repeat, int repeatDays, long firedAtMs, long version, int requestCode) {
+        this.alarmId = alarmId;
+        this.label = label != null ? label : DEFAULT_LABEL;
+        this.triggerTimeMs = triggerTimeMs;
+        this.soundId = soundId != null ? soundId : SoundCatalog.DEFAULT_ID;
+        this.priority = priority;
+        this.repeat = repeat != null ? repeat : REPEAT_NONE;
+        this.repeatDays = repeatDays;
+        this.firedAtMs = firedAtMs;
+        this.version = version;
+        this.requestCode = requestCode;
+    }
+
+    public boolean isRecurring() {
+        return !REPEAT_NONE.equals(repeat) && (!REPEAT_DAYS.equals(repeat) || repeatDays != 0);
+    }
+
+    // True if the current occurrence has already rung
+    public boolean hasFired() {
+        return firedAtMs >= triggerTimeMs;
+    }
+
+    // Keeps the version, so storing the result is a compare-and-swap against the row it came from
+    public AlarmRecord withTriggerTime(long triggerTimeMs) {
+        return new AlarmRecord(alarmId, label, triggerTimeMs, soundId, priority, repeat, repeatDays, firedAtMs,
+                version, requestCode);
+    }
+
+    public AlarmRecord withFiredAt(long firedAtMs) {
+        return new AlarmRecord(alarmId, label, triggerTimeMs, soundId, priority, repeat, repeatDays, firedAtMs,
+                version, requestCode);
+    }
+
+    // Next occurrence strictly after nowMs, keeping the UTC time of day; -1 if not recurring
+    public long nextOccurrenceAfter(long nowMs) {
+        if (!isRecurring()) return -1;
+        // Weekday rules are recomputed from nowMs, so a clock change can move them earlier too
+        if (triggerTimeMs > nowMs && !REPEAT_DAYS.equals(repeat)) return triggerTimeMs;
+
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.setTimeInMillis(triggerTimeMs);
+
+        switch (repeat) {
+            case REPEAT_WEEKLY: {
+                long weekMs = 7L * 24 * 60 * 60 * 1000;
+                long weeks = (nowMs - triggerTimeMs) / weekMs + 1;
+                return triggerTimeMs + weeks * weekMs;
+            }
+            case REPEAT_MONTHLY: {
+                // Each occurrence comes from the anchor day, so a short month never shifts the later ones.
+                // Start a month early: an overflowed trigger sits in the month after its anchor month.
+                int day = repeatDays > 0 ? repeatDays : c.get(Calendar.DAY_OF_MONTH);
+                int year = c.get(Calendar.YEAR);
+                int month = c.get(Calendar.MONTH) - 1;
+                int hour = c.get(Calendar.HOUR_OF_DAY);
+                int minute = c.get(Calendar.MINUTE);
+                long t;
+                do {
+                    c.clear();
+                    c.set(year, month++, day, hour, minute, 0);
+                    t = c.getTimeInMillis();
+                } while (t <= nowMs);
+                return t;
+            }
+            case REPEAT_DAYS: {
+                int hour = c.get(Calendar.HOUR_OF_DAY);
+                int minute = c.get(Calendar.MINUTE);
+                c.setTimeInMillis(nowMs);
+                c.set(Calendar.HOUR_OF_DAY, hour);
+                c.set(Calendar.MINUTE, minute);
+                c.set(Calendar.SECOND, 0);
+                c.set(Calendar.MILLISECOND, 0);
+                for (int daysAhead = 0; daysAhead <= 7; daysAhead++) {
+                    int utcDow = c.get(Calendar.DAY_OF_WEEK) - 1; // 0=Sun..6=Sat
+                    if ((repeatDays & (1 << utcDow)) != 0 && c.getTimeInMillis() > nowMs) {
+                        return c.getTimeInMillis();
+                    }
+                    c.add(Calendar.DAY_OF_YEAR, 1);
+                }
+                return -1;
+            }
+            default:
+                return -1;
+        }
+    }
+
+    public String toJson() throws JSONException {
+        JSONObject obj = new JSONObject();
+        obj.put("alarmId", alarmId);
+        obj.put("label", label);
+        obj.put("triggerTimeMs", triggerTimeMs);
+        obj.put("soundId", soundId);
+        obj.put("priority", priority);
+        if (isRecurring()) {
+            obj.put("repeat", repeat);
+            obj.put("repeatDays", repeatDays);
+        }
+        if (firedAtMs > 0) obj.put("firedAtMs", firedAtMs);
+        return obj.toString();
+    }
+
+    // Token-level parse: no intermediate JSONObject per stored entry
+    public static AlarmRecord fromJson(String json) throws IOException {
+        String alarmId = null;
+        String label = null;
+        long triggerTimeMs = -1;
+        String soundId = null;
+        int priority = 0;
+        String repeat = null;
+        int repeatDays = 0;
+        long firedAtMs = 0;
+
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "alarmId":
+                        alarmId = reader.nextString();
+                        break;
+                    case "label":
+                        label = reader.nextString();
+                        break;
+                    case "triggerTimeMs":
+                        triggerTimeMs = reader.nextLong();
+                        break;
+                    case "soundId":
+                        soundId = reader.nextString();
+                        break;
+                    case "priority":
+                        priority = reader.nextInt();
+                        break;
+                    case "repeat":
+                        repeat = reader.nextString();
+                        break;
+                    case "repeatDays":
+                        repeatDays = reader.nextInt();
+                        break;
+                    case "firedAtMs":
+                        firedAtMs = reader.nextLong();
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed alarm entry", e);
+        }
+
+        if (alarmId == null || triggerTimeMs < 0) throw new IOException("Incomplete alarm entry");
+        return new AlarmRecord(alarmId, label, triggerTimeMs, soundId, priority, repeat, repeatDays, firedAtMs);
+    }
+}
@@ -0,0 +1,334 @@
+package com.feroapps.tradertime;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.getcapacitor.JSObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Re-arms all user alarms and fixed sessions in one pass on a background worker.
+ *
+ * The store is loaded and sorted once; its overdue prefix goes through the
+ * CatchUpPolicy and the rest, together with the fixed sessions, is armed in
+ * trigger-time order so the soonest alarms are safe first. When the time budget
+ * runs out, the remainder is handed to a continuation broadcast instead of
+ * holding the receiver past its deadline.
+ */
+public class AlarmRescheduler {
+
+    private static final String TAG = "AlarmRescheduler";
+
+    public static final String ACTION_CONTINUE = "com.feroapps.tradertime.ACTION_CONTINUE_RESCHEDULE";
+    public static final String EXTRA_REASON = "reason";
+    public static final String EXTRA_RESUME_FROM_MS = "resume_from_ms";
+
+    public static final String REASON_BOOT = "boot";
+    // Only alarms defined by a UTC time of day are recomputed; fixed instants stay armed
+    public static final String REASON_TIME_CHANGE = "time_change";
+    // After a backup import: overdue alarms are rolled or dropped without a missed-alarm summary
+    public static final String REASON_RESTORE = "restore";
+    // After an app update, which clears the previous version's AlarmManager registrations
+    public static final String REASON_PACKAGE_REPLACED = "package_replaced";
+
+    // goAsync() receivers get ~10 s; leave headroom for store loading and finish()
+    private static final long TIME_BUDGET_MS = 5000;
+    private static final long CONTINUATION_DELAY_MS = 5000;
+    private static final int PROGRESS_INTERVAL = 200;
+    private static final int CONTINUATION_REQUEST_CODE = 0x7452; // "tR"
+
+    private static final ExecutorService WORKER =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "alarm-reschedule"));
+
+    private static class Entry {
+        final long triggerTimeMs;
+        // Exactly one of these is set
+        final AlarmRecord record;
+        final String sessionId;
+        // Version the record's row should have when armed: one more if this pass writes it
+        final long expectedVersion;
+
+        Entry(long triggerTimeMs, AlarmRecord record, String sessionId, long expectedVersion) {
+            this.triggerTimeMs = triggerTimeMs;
+            this.record = record;
+            this.sessionId = sessionId;
+            this.expectedVersion = expectedVersion;
+        }
+    }
+
+    public static class Result {
+        public int planned;
+        public int armed;
+        public int missed;
+        public int rolled;
+        public int dropped;
+        public int failed;
+        public boolean continued;
+        public long elapsedMs;
+    }
+
+    // Other arming work shares the worker so it never interleaves with a reschedule pass
+    public static void executeAsync(Runnable task) {
+        WORKER.execute(task);
+    }
+
+    // onDone runs on the worker thread, e.g. PendingResult::finish
+    public static void runAsync(Context context, String reason, long resumeFromMs, Runnable onDone) {
+        Context appContext = context.getApplicationContext();
+        WORKER.execute(() -> {
+            try {
+                run(appContext, reason, resumeFromMs);
+            } catch (Exception e) {
+                Log.e(TAG, "Reschedule (" + reason + ") failed", e);
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
+    }
+
+    // Arms everything due at or after resumeFromMs (0 for a full pass). Blocking.
+    static Result run(Context context, String reason, long resumeFromMs) {
+        Result result = new Result();
+        long startedAt = SystemClock.elapsedRealtime();
+        long now = System.currentTimeMillis();
+        recordWakeup(context, reason, resumeFromMs, now);
+
+        // One scan in trigger time index order: overdue entries form a prefix, handled by the catch-up policy
+        List<AlarmRecord> records = AlarmStore.loadAll(context);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+
+        // The first pass after the request code change drops the old hashCode registrations
+        // before arming anything, and then re-arms every upcoming alarm whatever the reason
+        boolean legacyCodes = !UserAlarmScheduler.legacyRegistrationsCleared(context);
+        if (legacyCodes) {
+            FixedSessionScheduler.cancelLegacyRegistrations(context, alarmManager);
+            UserAlarmScheduler.cancelLegacyRegistrations(context, alarmManager, records);
+        }
+
+        boolean timeRulesOnly = REASON_TIME_CHANGE.equals(reason);
+        // The clock jumped, so the horizon's covered window no longer lines up with now
+        if (timeRulesOnly) OccurrenceHorizon.invalidateAll();
+        boolean catchUp = resumeFromMs == 0 && !timeRulesOnly;
+        // Restored alarms that are already overdue belong to the old phone; never report them
+        long windowMs = REASON_RESTORE.equals(reason) ? -1 : CatchUpPolicy.getWindowMs(context);
+        List<AlarmRecord> missed = new ArrayList<>();
+        List<AlarmRecord> updates = new ArrayList<>();
+        List<AlarmRecord> removals = new ArrayList<>();
+        List<Entry> extra = new ArrayList<>();
+
+        int next = 0;
+        for (; next < records.size() && records.get(next).triggerTimeMs <= now; next++) {
+            if (!catchUp) continue;
+            AlarmRecord record = records.get(next);
+            boolean inWindow = !record.hasFired() && now - record.triggerTimeMs <= windowMs;
+            if (inWindow) {
+                missed.add(record);
+                result.missed++;
+            }
+
+            long nextTriggerMs = record.nextOccurrenceAfter(now);
+            if (nextTriggerMs > 0) {
+                AlarmRecord rolled = record.withTriggerTime(nextTriggerMs);
+                updates.add(rolled);
+                extra.add(new Entry(nextTriggerMs, rolled, null, record.version + 1));
+                result.rolled++;
+            } else {
+                removals.add(record);
+                if (!inWindow) result.dropped++;
+            }
+        }
+
+        List<Entry> upcoming = new ArrayList<>(records.size() - next);
+        for (; next < records.size(); next++) {
+            AlarmRecord record = records.get(next);
+            if (timeRulesOnly) {
+                // After a clock change an earlier matching weekday may now come first
+                boolean weekday = AlarmRecord.REPEAT_DAYS.equals(record.repeat);
+                long recomputedMs = weekday ? record.nextOccurrenceAfter(now) : 0;
+                if (recomputedMs > 0 && recomputedMs != record.triggerTimeMs) {
+                    AlarmRecord moved = record.withTriggerTime(recomputedMs);
+                    updates.add(moved);
+                    if (recomputedMs >= resumeFromMs) extra.add(new Entry(recomputedMs, moved, null, record.version + 1));
+                    result.rolled++;
+                } else if (record.triggerTimeMs >= resumeFromMs && (legacyCodes || (weekday && resumeFromMs > 0))) {
+                    // The first pass stored every move but armed only up to its budget, so a
+                    // continuation can't tell moved from unmoved and arms every weekday alarm left
+                    upcoming.add(new Entry(record.triggerTimeMs, record, null, record.version));
+                }
+            } else if (record.triggerTimeMs >= resumeFromMs) {
+                upcoming.add(new Entry(record.triggerTimeMs, record, null, record.version));
+            }
+        }
+        for (String sessionId : FixedSessionScheduler.sessionIds()) {
+            long triggerTimeMs = FixedSessionScheduler.nextTriggerTimeMs(sessionId, now);
+            if (triggerTimeMs >= resumeFromMs) extra.add(new Entry(triggerTimeMs, null, sessionId, 0));
+        }
+        Collections.sort(extra, (a, b) -> Long.compare(a.triggerTimeMs, b.triggerTimeMs));
+        List<Entry> plan = merge(upcoming, extra);
+
+        // Alarms changed by someone else since loadAll(), re-decided against their current row
+        if (timeRulesOnly) {
+            reconcile(context, AlarmStore.applyBatch(context, updates, removals), now, true);
+            Log.i(TAG, reason + ": " + result.rolled + " weekday alarm(s) moved");
+        } else if (catchUp) {
+            reconcile(context, AlarmStore.applyBatch(context, updates, removals), now, false);
+            MissedAlarmNotifier.showSummary(context, missed);
+            Log.i(TAG, reason + " catch-up (window " + windowMs / 60000 + " min): " + result.missed
+                    + " missed, " + result.rolled + " rolled forward, " + result.dropped + " dropped");
+        }
+        result.planned = plan.size();
+        Log.i(TAG, reason + ": planned " + plan.size() + " alarm(s) in "
+                + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+
+        boolean exact = UserAlarmScheduler.canScheduleExact(alarmManager);
+        long deadline = startedAt + TIME_BUDGET_MS;
+
+        for (int i = 0; i < plan.size(); i++) {
+            Entry entry = plan.get(i);
+            if (SystemClock.elapsedRealtime() > deadline) {
+                Log.w(TAG, reason + ": time budget spent after " + result.armed + " alarm(s), continuing from "
+                        + entry.triggerTimeMs);
+                scheduleContinuation(context, alarmManager, reason, entry.triggerTimeMs);
+                result.continued = true;
+                break;
+            }
+
+            AlarmRecord record = entry.record;
+            try {
+                if (record != null) {
+                    if (armCurrent(context, alarmManager, record, entry.expectedVersion, now, exact)) {
+                        result.armed++;
+                    }
+                } else {
+                    FixedSessionScheduler.arm(context, alarmManager, entry.sessionId, entry.triggerTimeMs, exact);
+                    result.armed++;
+                }
+            } catch (IllegalStateException e) {
+                // Per-app alarm limit: everything later in the plan would fail too
+                Log.e(TAG, "AlarmManager refused more alarms after " + result.armed, e);
+                result.failed += plan.size() - i;
+                break;
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to arm " + (record != null ? record.alarmId : entry.sessionId), e);
+                result.failed++;
+            }
+
+            if ((i + 1) % PROGRESS_INTERVAL == 0) {
+                Log.i(TAG, reason + ": armed " + (i + 1) + "/" + plan.size() + " in "
+                        + (SystemClock.elapsedRealtime() - startedAt) + " ms");
+            }
+        }
+
+        // A continuation repeats the legacy sweep; it finds nothing and arms the rest
+        if (legacyCodes && !result.continued) UserAlarmScheduler.markLegacyRegistrationsCleared(context);
+
+        result.elapsedMs = SystemClock.elapsedRealtime() - startedAt;
+        Log.i(TAG, reason + " reschedule complete: " + result.armed + " armed, " + result.failed + " failed" + (result.continued ? ", continuing" : "")
+                + " in " + result.elapsedMs + " ms (exact=" + exact + ")");
+
+        JSObject event = new JSObject();
+        event.put("reason", reason);
+        event.put("armed", result.armed);
+        event.put("failed", result.failed);
+        event.put("continued", result.continued);
+        AlarmEvents.emit(AlarmEvents.ALARMS_RESCHEDULED, event);
+        AlarmEvents.nextDueChangedAsync(context);
+        return result;
+    }
+
+    // The plan was built from loadAll() and this pass's own writes; anything else may have
+    // changed or cancelled the alarm since. The row is re-read under its stripe lock: at the
+    // expected version the planned record is armed, otherwise the row as it is now, so a
+    // concurrent edit or cancel is never undone and a stale record never takes a request
+    // code that has moved to another alarm. Returns false if there is nothing left to arm.
+    private static boolean armCurrent(Context context, AlarmManager alarmManager, AlarmRecord planned,
+                                      long expectedVersion, long now, boolean exact) {
+        return AlarmStore.readLocked(context, planned.alarmId, current -> {
+            if (current == null) {
+                Log.i(TAG, "Alarm " + planned.alarmId + " was removed during the pass");
+                return false;
+            }
+            AlarmRecord record = planned;
+            if (current.version != expectedVersion) {
+                Log.i(TAG, "Alarm " + planned.alarmId + " changed during the pass, arming its current row");
+                record = current;
+            }
+            if (record.triggerTimeMs <= now) return false;
+            UserAlarmScheduler.arm(context, alarmManager, record, exact);
+            return true;
+        });
+    }
+
+    // Re-applies the catch-up or time-change decision to each conflicting alarm's current row;
+    // armCurrent() then arms whatever it stored
+    private static void reconcile(Context context, List<String> conflicts, long now, boolean timeRulesOnly) {
+        if (conflicts.isEmpty()) return;
+        for (String alarmId : conflicts) {
+            AlarmStore.update(context, alarmId, current -> {
+                if (current == null) return null;
+                if (timeRulesOnly) {
+                    if (!AlarmRecord.REPEAT_DAYS.equals(current.repeat)) return current;
+                    long recomputedMs = current.nextOccurrenceAfter(now);
+                    return recomputedMs > 0 && recomputedMs != current.triggerTimeMs
+                            ? current.withTriggerTime(recomputedMs) : current;
+                }
+                if (current.triggerTimeMs > now) return current;
+                long nextTriggerMs = current.nextOccurrenceAfter(now);
+                return nextTriggerMs > 0 ? current.withTriggerTime(nextTriggerMs) : null;
+            });
+        }
+        Log.i(TAG, "Reconciled " + conflicts.size() + " alarm(s) changed during the pass");
+    }
+
+    // A restore is started by the user and a package replacement by an update, not by a wakeup;
+    // their continuations are alarm wakeups like any other and are recorded
+    private static void recordWakeup(Context context, String reason, long resumeFromMs, long now) {
+        if (resumeFromMs > 0) {
+            WakeupLedger.record(context, WakeupLedger.SOURCE_REARM, now);
+        } else if (REASON_BOOT.equals(reason)) {
+            WakeupLedger.recordBoot(context, now);
+        } else if (REASON_TIME_CHANGE.equals(reason)) {
+            WakeupLedger.record(context, WakeupLedger.SOURCE_TIME_CHANGE, now);
+        }
+    }
+
+    // Both inputs are sorted by trigger time
+    private static List<Entry> merge(List<Entry> a, List<Entry> b) {
+        List<Entry> out = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j >= b.size() || (i < a.size() && a.get(i).triggerTimeMs <= b.get(j).triggerTimeMs)) {
+                out.add(a.get(i++));
+            } else {
+                out.add(b.get(j++));
+            }
+        }
+        return out;
+    }
+
+    private static void scheduleContinuation(Context context, AlarmManager alarmManager, String reason,
+                                             long resumeFromMs) {
+        Intent intent = new Intent(context, BootReceiver.class);
+        intent.setAction(ACTION_CONTINUE);
+        intent.putExtra(EXTRA_REASON, reason);
+        intent.putExtra(EXTRA_RESUME_FROM_MS, resumeFromMs);
+
+        PendingIntent pi = PendingIntent.getBroadcast(
+                context,
+                CONTINUATION_REQUEST_CODE,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+        alarmManager.set(AlarmManager.RTC_WAKEUP, System.currentTimeMillis() + CONTINUATION_DELAY_MS, pi);
+    }
+}
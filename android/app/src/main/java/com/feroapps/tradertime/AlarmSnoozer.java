@@ -0,0 +1,77 @@
+package com.feroapps.tradertime;
+
+import android.app.AlarmManager;
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Re-arms a ringing alarm natively, without going through JS.
+ *
+ * A snooze is a one-shot user alarm stored and armed like any other, under the
+ * alarm's id plus SNOOZE_SUFFIX so it never overwrites a recurring schedule.
+ * Snoozing the snooze replaces it. Counts are tracked per original alarm id.
+ */
+public class AlarmSnoozer {
+
+    private static final String TAG = "AlarmSnoozer";
+
+    public static final String SNOOZE_SUFFIX = "_snooze";
+
+    public static String baseId(String alarmId) {
+        return alarmId.endsWith(SNOOZE_SUFFIX)
+                ? alarmId.substring(0, alarmId.length() - SNOOZE_SUFFIX.length())
+                : alarmId;
+    }
+
+    public static String snoozeId(String alarmId) {
+        return baseId(alarmId) + SNOOZE_SUFFIX;
+    }
+
+    // Blocking: writes the store and arms the alarm. Returns null if the alarm is out of snoozes
+    public static AlarmRecord snooze(Context context, ActiveAlarmQueue.ActiveAlarm alarm, long nowMs) {
+        String baseId = baseId(alarm.alarmId);
+        int count = SnoozePolicy.getCount(context, baseId);
+        if (count >= SnoozePolicy.getMaxCount(context)) {
+            Log.i(TAG, baseId + " has used all " + count + " snoozes");
+            return null;
+        }
+
+        long triggerTimeMs = nowMs + SnoozePolicy.durationMs(context, count);
+        AlarmRecord record = new AlarmRecord(snoozeId(baseId), alarm.label, triggerTimeMs,
+                alarm.soundId, alarm.priority);
+        AlarmStore.put(context, record);
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        boolean exact = UserAlarmScheduler.arm(context, alarmManager, record,
+                UserAlarmScheduler.canScheduleExact(alarmManager));
+        SnoozePolicy.setCount(context, baseId, count + 1);
+
+        Log.i(TAG, "Snoozed " + baseId + " until " + triggerTimeMs + " (" + (count + 1)
+                + " of " + SnoozePolicy.getMaxCount(context) + (exact ? ", exact)" : ", inexact)"));
+        AlarmEvents.alarmSnoozed(baseId, record.alarmId, triggerTimeMs, count + 1);
+        return record;
+    }
+
+    // Drops a pending snooze along with the alarm it belongs to
+    public static void cancel(Context context, AlarmManager alarmManager, String alarmId) {
+        String id = snoozeId(alarmId);
+        AlarmStore.remove(context, id, record -> {
+            if (UserAlarmScheduler.cancel(context, alarmManager, record)) {
+                Log.i(TAG, "Cancelled pending snooze: " + id);
+            }
+        });
+        resetCounts(context, Collections.singletonList(alarmId));
+    }
+
+    // A stop ends the snooze chain, so the next ring starts from the first tier again
+    public static void resetCounts(Context context, Collection<String> alarmIds) {
+        List<String> baseIds = new ArrayList<>(alarmIds.size());
+        for (String id : alarmIds) baseIds.add(baseId(id));
+        SnoozePolicy.resetCounts(context, baseIds);
+    }
+}
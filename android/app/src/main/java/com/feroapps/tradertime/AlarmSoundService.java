@@ -4,23 +4,43 @@ import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.app.Service;
+import android.content.Context;
 import android.content.Intent;
-import android.media.AudioAttributes;
-import android.media.MediaPlayer;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
 import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.graphics.BitmapFactory;
 import android.util.Log;
 import android.graphics.Bitmap;
 import androidx.core.app.NotificationCompat;
 
-public class AlarmSoundService extends Service {
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Foreground service that rings alarms.
+ *
+ * The instance is kept warm between alarms: IDLE -> STARTING -> RINGING -> STOPPING -> IDLE,
+ * and it only stops itself after staying IDLE for IDLE_GRACE_MS, so back-to-back alarms
+ * skip service creation, channel setup and the audio thread start.
+ * All state transitions happen on the main thread.
+ */
+public class AlarmSoundService extends Service implements AlarmAudioController.Listener {
 
     private static final String TAG = "AlarmSoundService";
 
     public static final String ACTION_STOP = "com.feroapps.tradertime.ACTION_STOP";
+    // Stops ringing right away and re-arms natively; alarms out of snoozes just stop
+    public static final String ACTION_SNOOZE = "com.feroapps.tradertime.ACTION_SNOOZE";
 
     public static final String ACTION_FINISH_ALARM_ACTIVITY =
             "com.feroapps.tradertime.ACTION_FINISH_ALARM_ACTIVITY";
@@ -28,75 +48,146 @@ public class AlarmSoundService extends Service {
     public static final String EXTRA_ALARM_ID = "alarm_id";
     public static final String EXTRA_ALARM_LABEL = "alarm_label";
     public static final String EXTRA_SOUND_ID = "sound_id";
+    public static final String EXTRA_PRIORITY = "priority";
+    // Optional on ACTION_STOP and ACTION_SNOOZE: only these alarms are affected, the rest keep ringing
+    public static final String EXTRA_ALARM_IDS = "alarm_ids";
 
     private static final String CHANNEL_ID = "alarm_sound_channel";
     private static final int FOREGROUND_NOTIFICATION_ID = 2001;
     private static final int STOPPED_NOTIFICATION_ID = 2002;
 
     private static final long ALARM_TIMEOUT_MS = 120000;
+    // Short enough to stay within background execution limits once out of the foreground
+    private static final long IDLE_GRACE_MS = 30000;
 
-    private MediaPlayer mediaPlayer;
-    private Handler timeoutHandler;
-    private Runnable timeoutRunnable;
+    // Held from session start until audio has stopped, so preparing audio can't be cut short by doze
+    static final String WAKE_TAG_SESSION = "alarm_session";
+    private static final long SESSION_WAKE_SLACK_MS = 10000;
 
-    private static volatile String sCurrentAlarmId;
+    private enum State { IDLE, STARTING, RINGING, STOPPING }
+
+    private State state = State.IDLE;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable idleShutdown = this::onIdleGraceExpired;
+
+    private AlarmAudioController audioController;
+    private WakeLockManager.Handle sessionWakeLock;
+
+    // Shared with the plugin so any thread can see what is ringing
+    private static final ActiveAlarmQueue sActiveAlarms = new ActiveAlarmQueue();
 
-    private String currentAlarmId;
     private String currentLabel;
     private String currentSoundId;
+    // Set when the session ends in a snooze, for the stopped notification
+    private long snoozedUntilMs;
+
+    private Bitmap largeIcon;
+    private Bitmap bigPicture;
 
+    // Highest priority ringing alarm, or null
     public static String getCurrentAlarmId() {
-        return sCurrentAlarmId;
+        ActiveAlarmQueue.ActiveAlarm head = sActiveAlarms.peek();
+        return head != null ? head.alarmId : null;
     }
+
+    public static List<ActiveAlarmQueue.ActiveAlarm> getActiveAlarms() {
+        return sActiveAlarms.snapshot();
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
-        timeoutHandler = new Handler(Looper.getMainLooper());
+        audioController = new AlarmAudioController(this, this);
         createNotificationChannel();
+        AlarmAudioEngine.preloadBundled(this);
     }
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
+        long startedAtNanos = SystemClock.elapsedRealtimeNanos();
         Log.i(TAG, "===== AlarmSoundService.onStartCommand ENTERED =====");
 
         if (intent == null) {
-            Log.w(TAG, "Intent is null - stopping self");
-            stopSelf();
+            Log.w(TAG, "Intent is null - ignoring");
+            if (state == State.IDLE) scheduleIdleShutdown();
             return START_NOT_STICKY;
         }
 
         String action = intent.getAction();
-        Log.i(TAG, "Action: " + action);
+        Log.i(TAG, "Action: " + action + ", state: " + state);
 
         if (ACTION_STOP.equals(action)) {
-            Log.i(TAG, "STOP action received");
-            stopAlarm();
+            String[] alarmIds = intent.getStringArrayExtra(EXTRA_ALARM_IDS);
+            Log.i(TAG, "STOP action received" + (alarmIds != null ? " for " + Arrays.toString(alarmIds) : ""));
+            if (state == State.IDLE) {
+                Log.i(TAG, "Nothing is ringing");
+                scheduleIdleShutdown();
+                return START_NOT_STICKY;
+            }
+            snoozedUntilMs = 0;
+            resetSnoozeCounts(alarmIds != null ? Arrays.asList(alarmIds) : null);
+            if (alarmIds == null) {
+                stopAlarm();
+            } else {
+                stopAlarms(Arrays.asList(alarmIds));
+            }
             return START_NOT_STICKY;
         }
-        currentAlarmId = intent.getStringExtra(EXTRA_ALARM_ID);
-        currentLabel = intent.getStringExtra(EXTRA_ALARM_LABEL);
-        currentSoundId = intent.getStringExtra(EXTRA_SOUND_ID);
-
-        if (currentAlarmId == null) {
-            Log.w(TAG, "alarmId is null - stopping self");
-            stopSelf();
+        if (ACTION_SNOOZE.equals(action)) {
+            String[] alarmIds = intent.getStringArrayExtra(EXTRA_ALARM_IDS);
+            Log.i(TAG, "SNOOZE action received" + (alarmIds != null ? " for " + Arrays.toString(alarmIds) : ""));
+            if (state == State.IDLE) {
+                Log.i(TAG, "Nothing is ringing");
+                scheduleIdleShutdown();
+            } else {
+                snoozeAlarms(alarmIds != null ? Arrays.asList(alarmIds) : null);
+            }
+            return START_NOT_STICKY;
+        }
+        String alarmId = intent.getStringExtra(EXTRA_ALARM_ID);
+        String label = intent.getStringExtra(EXTRA_ALARM_LABEL);
+        String soundId = intent.getStringExtra(EXTRA_SOUND_ID);
+        int priority = intent.getIntExtra(EXTRA_PRIORITY, 0);
+
+        if (alarmId == null) {
+            Log.w(TAG, "alarmId is null - ignoring");
+            if (state == State.IDLE) scheduleIdleShutdown();
             return START_NOT_STICKY;
         }
 
-        sCurrentAlarmId = currentAlarmId;
-
-        if (currentLabel == null) currentLabel = "Trader Time Alert";
-        if (currentSoundId == null) currentSoundId = "original";
+        if (label == null) label = "Trader Time Alert";
+        if (soundId == null) soundId = SoundCatalog.DEFAULT_ID;
+        Log.i(TAG, "alarmId: " + alarmId);
+        Log.i(TAG, "label: " + label);
+        Log.i(TAG, "soundId: " + soundId);
+        Log.i(TAG, "priority: " + priority);
+
+        mainHandler.removeCallbacks(idleShutdown);
+        boolean newSession = state == State.IDLE || state == State.STOPPING;
+        sActiveAlarms.add(new ActiveAlarmQueue.ActiveAlarm(
+                alarmId, label, soundId, priority, System.currentTimeMillis()));
+        ActiveAlarmQueue.ActiveAlarm head = sActiveAlarms.peek();
+        currentLabel = head.label;
+
+        // startForeground with the same id only updates the notification, but it is
+        // still required after every startForegroundService()
         startForeground(FOREGROUND_NOTIFICATION_ID, buildForegroundNotification());
-        Log.i(TAG, "alarmId: " + currentAlarmId);
-        Log.i(TAG, "label: " + currentLabel);
-        Log.i(TAG, "soundId: " + currentSoundId);
 
-        Notification notification = buildForegroundNotification();
-        startForeground(FOREGROUND_NOTIFICATION_ID, notification);
-
-        playAlarmSound();
-        scheduleTimeout();
+        holdSessionWakeLock();
+
+        if (newSession) {
+            Log.i(TAG, "State " + state + " -> STARTING");
+            snoozedUntilMs = 0;
+            state = State.STARTING;
+            currentSoundId = head.soundId;
+            audioController.play(SoundCatalog.get(this, currentSoundId), startedAtNanos, ALARM_TIMEOUT_MS);
+        } else {
+            // Join the running session: keep playing unless a higher priority alarm
+            // needs a different sound, and give the newcomer a full timeout
+            Log.i(TAG, alarmId + " joined " + sActiveAlarms.size() + " ringing alarm(s)");
+            switchToHeadSound(head);
+            audioController.resetTimeout(ALARM_TIMEOUT_MS);
+        }
 
         Log.i(TAG, "===== AlarmSoundService.onStartCommand COMPLETED =====");
         return START_NOT_STICKY;
@@ -110,18 +201,104 @@ public class AlarmSoundService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        stopAlarm();
-        cancelTimeout();
+        mainHandler.removeCallbacks(idleShutdown);
+        if (state == State.STARTING || state == State.RINGING) stopAlarm();
+        state = State.IDLE;
+        audioController.quit();
+        WakeLockManager.releaseAll(WAKE_TAG_SESSION);
+        WakeLockManager.releaseAll(AlarmActivity.WAKE_TAG_SCREEN);
         Log.i(TAG, "Service destroyed");
     }
-    private boolean alreadystopped = false;
-    private void stopAlarm() {
-        if(alreadystopped) return;
-        alreadystopped = true;
-        sCurrentAlarmId = null;
-        stopAlarmSound();
-        cancelTimeout();
 
+    // Stops some of the ringing alarms; the session ends when none are left
+    private void stopAlarms(List<String> alarmIds) {
+        List<ActiveAlarmQueue.ActiveAlarm> removed = sActiveAlarms.remove(alarmIds);
+        Log.i(TAG, "Stopped " + removed.size() + " alarm(s), " + sActiveAlarms.size() + " still ringing");
+        if (!removed.isEmpty()) AlarmEvents.alarmStopped(idsOf(removed));
+
+        ActiveAlarmQueue.ActiveAlarm head = sActiveAlarms.peek();
+        if (head == null) {
+            if (!removed.isEmpty()) currentLabel = removed.get(0).label;
+            stopAlarm();
+            return;
+        }
+        if (removed.isEmpty()) return;
+
+        currentLabel = head.label;
+        NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
+        if (nm != null) {
+            nm.notify(FOREGROUND_NOTIFICATION_ID, buildForegroundNotification());
+        }
+        switchToHeadSound(head);
+    }
+
+    // Ringing stops on the main thread at once; the store write and re-arm follow on the store executor
+    private void snoozeAlarms(List<String> alarmIds) {
+        long now = System.currentTimeMillis();
+        List<ActiveAlarmQueue.ActiveAlarm> targets = new ArrayList<>();
+        long earliest = Long.MAX_VALUE;
+        for (ActiveAlarmQueue.ActiveAlarm alarm : sActiveAlarms.snapshot()) {
+            if (alarmIds != null && !alarmIds.contains(alarm.alarmId)) continue;
+            targets.add(alarm);
+            String baseId = AlarmSnoozer.baseId(alarm.alarmId);
+            if (SnoozePolicy.canSnooze(this, baseId)) {
+                earliest = Math.min(earliest, now + SnoozePolicy.durationMs(this, SnoozePolicy.getCount(this, baseId)));
+            }
+        }
+        if (targets.isEmpty()) return;
+
+        if (earliest != Long.MAX_VALUE) snoozedUntilMs = earliest;
+        stopAlarms(idsOf(targets));
+
+        Context appContext = getApplicationContext();
+        AlarmStore.executeAsync(() -> {
+            for (ActiveAlarmQueue.ActiveAlarm alarm : targets) {
+                // Out of snoozes: this was its final stop
+                if (AlarmSnoozer.snooze(appContext, alarm, now) == null) {
+                    AlarmSnoozer.resetCounts(appContext, Collections.singletonList(alarm.alarmId));
+                }
+            }
+            AlarmEvents.nextDueChangedAsync(appContext);
+        });
+    }
+
+    // null means every ringing alarm
+    private void resetSnoozeCounts(List<String> alarmIds) {
+        List<String> ids = alarmIds != null ? alarmIds : idsOf(sActiveAlarms.snapshot());
+        if (ids.isEmpty()) return;
+        Context appContext = getApplicationContext();
+        AlarmStore.executeAsync(() -> AlarmSnoozer.resetCounts(appContext, ids));
+    }
+
+    // True if the head of the queue may still be snoozed
+    private boolean canSnoozeHead() {
+        ActiveAlarmQueue.ActiveAlarm head = sActiveAlarms.peek();
+        return head != null && SnoozePolicy.canSnooze(this, AlarmSnoozer.baseId(head.alarmId));
+    }
+
+    private static List<String> idsOf(List<ActiveAlarmQueue.ActiveAlarm> alarms) {
+        List<String> ids = new ArrayList<>(alarms.size());
+        for (ActiveAlarmQueue.ActiveAlarm alarm : alarms) ids.add(alarm.alarmId);
+        return ids;
+    }
+
+    private void switchToHeadSound(ActiveAlarmQueue.ActiveAlarm head) {
+        if (head.soundId.equals(currentSoundId)) return;
+        currentSoundId = head.soundId;
+        audioController.switchSound(SoundCatalog.get(this, currentSoundId));
+    }
+
+    private void stopAlarm() {
+        if (state == State.IDLE || state == State.STOPPING) return;
+        Log.i(TAG, "State " + state + " -> STOPPING");
+        state = State.STOPPING;
+        List<ActiveAlarmQueue.ActiveAlarm> stopped = sActiveAlarms.clear();
+        if (!stopped.isEmpty()) currentLabel = stopped.get(0).label;
+        audioController.stop();
+        if (!stopped.isEmpty()) AlarmEvents.alarmStopped(idsOf(stopped));
+
+        // The screen only needs to stay on while something is ringing
+        WakeLockManager.releaseAll(AlarmActivity.WAKE_TAG_SCREEN);
         requestFinishAlarmActivity();
 
         NotificationManager nm = (NotificationManager) getSystemService(NOTIFICATION_SERVICE);
@@ -129,11 +306,55 @@ public class AlarmSoundService extends Service {
             nm.notify(STOPPED_NOTIFICATION_ID, buildStoppedNotification());
         }
 
-        stopForeground(true);
-        stopSelf();
+        stopForeground(STOP_FOREGROUND_REMOVE);
         Log.i(TAG, "Alarm stopped, notification preserved");
     }
 
+    @Override
+    public void onPlaybackStarted() {
+        if (state != State.STARTING) return;
+        Log.i(TAG, "State STARTING -> RINGING");
+        state = State.RINGING;
+    }
+
+    @Override
+    public void onPlaybackStopped() {
+        // A stop that raced with a new alarm is stale; that session owns the state now
+        if (state != State.STOPPING) return;
+        Log.i(TAG, "State STOPPING -> IDLE");
+        state = State.IDLE;
+        if (sessionWakeLock != null) {
+            sessionWakeLock.release();
+            sessionWakeLock = null;
+        }
+        scheduleIdleShutdown();
+    }
+
+    @Override
+    public void onPlaybackTimeout() {
+        Log.w(TAG, "Alarm auto-stopped after 120 seconds");
+        stopAlarm();
+    }
+
+    // A joining alarm gets a full timeout, so the lock is renewed to cover it as well
+    private void holdSessionWakeLock() {
+        WakeLockManager.Handle previous = sessionWakeLock;
+        sessionWakeLock = WakeLockManager.acquire(this, WAKE_TAG_SESSION,
+                PowerManager.PARTIAL_WAKE_LOCK, ALARM_TIMEOUT_MS + SESSION_WAKE_SLACK_MS);
+        if (previous != null) previous.release();
+    }
+
+    private void scheduleIdleShutdown() {
+        mainHandler.removeCallbacks(idleShutdown);
+        mainHandler.postDelayed(idleShutdown, IDLE_GRACE_MS);
+    }
+
+    private void onIdleGraceExpired() {
+        if (state != State.IDLE) return;
+        Log.i(TAG, "Idle for " + IDLE_GRACE_MS + " ms - stopping service");
+        stopSelf();
+    }
+
     private void requestFinishAlarmActivity() {
         Intent i = new Intent(ACTION_FINISH_ALARM_ACTIVITY);
         i.setPackage(getPackageName());
@@ -167,14 +388,7 @@ public class AlarmSoundService extends Service {
                 stopIntent,
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
-        Intent openIntent = new Intent(this, MainActivity.class);
-        openIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
-        PendingIntent openPendingIntent = PendingIntent.getActivity(
-                this,
-                1,
-                openIntent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
+        // Tapping the notification opens the native ringing screen, not the WebView
         Intent fsIntent = new Intent(this, AlarmActivity.class);
         fsIntent.putExtra(EXTRA_ALARM_LABEL, currentLabel);
         fsIntent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_SINGLE_TOP);
@@ -186,20 +400,25 @@ public class AlarmSoundService extends Service {
 
 
 
-        Bitmap bigBitmap = BitmapFactory.decodeResource(
-                getResources(), R.mipmap.ic_launcher);
-        return new NotificationCompat.Builder(this, CHANNEL_ID)
+        // Decoded once per service; the notification is rebuilt whenever the queue changes
+        if (bigPicture == null) {
+            bigPicture = BitmapFactory.decodeResource(getResources(), R.mipmap.ic_launcher);
+        }
+        int ringing = Math.max(1, sActiveAlarms.size());
+        String summary = ringing > 1 ? currentLabel + " (+" + (ringing - 1) + " more)" : currentLabel;
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
                 .setContentTitle("Trader Time Alert")
-                .setContentText(currentLabel)
+                .setContentText(summary)
                 .setSmallIcon(R.drawable.ic_stat_notification)
-                .setLargeIcon(BitmapFactory.decodeResource(
-                        getResources(), R.mipmap.ic_stat_notification1))
+                .setLargeIcon(getLargeIcon())
                 .setStyle(
                         new NotificationCompat.BigPictureStyle()
-                                .bigPicture(bigBitmap)
-                                .setSummaryText(currentLabel)
+                                .bigPicture(bigPicture)
+                                .setSummaryText(summary)
                                 .bigLargeIcon((Bitmap)null)
                 )
+                .setNumber(ringing)
+                .setOnlyAlertOnce(true)
                 .setCategory(NotificationCompat.CATEGORY_ALARM)
                 .setPriority(NotificationCompat.PRIORITY_MAX)
                 .setFullScreenIntent(fullScreenPendingIntent, true)
@@ -210,13 +429,26 @@ public class AlarmSoundService extends Service {
                         "STOP",
                         stopPendingIntent
                 )
-                .setContentIntent(openPendingIntent)
-                .build();
+                .setContentIntent(fullScreenPendingIntent);
+
+        if (canSnoozeHead()) {
+            Intent snoozeIntent = new Intent(this, AlarmSoundService.class);
+            snoozeIntent.setAction(ACTION_SNOOZE);
+            PendingIntent snoozePendingIntent = PendingIntent.getService(
+                    this,
+                    3,
+                    snoozeIntent,
+                    PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+            );
+            builder.addAction(android.R.drawable.ic_lock_idle_alarm, "SNOOZE", snoozePendingIntent);
+        }
+        return builder.build();
     }
 
     private Notification buildStoppedNotification() {
         Intent openIntent = new Intent(this, MainActivity.class);
         openIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        openIntent.putExtra(MainActivity.EXTRA_FROM_ALARM, true);
 
         PendingIntent openPendingIntent = PendingIntent.getActivity(
                 this,
@@ -225,101 +457,32 @@ public class AlarmSoundService extends Service {
                 PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
         );
 
+        String title = "Alarm stopped";
+        String text = "Tap to open app";
+        if (snoozedUntilMs > 0) {
+            SimpleDateFormat utc = new SimpleDateFormat("HH:mm", Locale.US);
+            utc.setTimeZone(TimeZone.getTimeZone("UTC"));
+            title = "Alarm snoozed";
+            text = "Rings again at " + utc.format(new Date(snoozedUntilMs)) + " UTC";
+        }
+
         return new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("Alarm stopped")
-                .setContentText("Tap to open app")
+                .setContentTitle(title)
+                .setContentText(text)
                 .setSmallIcon(R.drawable.ic_stat_notification)
                 .setOngoing(false)
                 .setAutoCancel(false)
-                .setLargeIcon(BitmapFactory.decodeResource(getResources(), R.mipmap.ic_stat_notification1))
+                .setLargeIcon(getLargeIcon())
                 .setStyle(new NotificationCompat.BigTextStyle().bigText(currentLabel))
                 .setPriority(NotificationCompat.PRIORITY_DEFAULT)
                 .setContentIntent(openPendingIntent)
                 .build();
     }
 
-    private void playAlarmSound() {
-        stopAlarmSound();
-
-        int soundRes = getSoundResource(currentSoundId);
-        if (soundRes == 0) soundRes = getSoundResource("original");
-        if (soundRes == 0) {
-            Log.e(TAG, "No sound resource found");
-            return;
+    private Bitmap getLargeIcon() {
+        if (largeIcon == null) {
+            largeIcon = BitmapFactory.decodeResource(getResources(), R.mipmap.ic_stat_notification1);
         }
-
-        try {
-            mediaPlayer = MediaPlayer.create(this, soundRes);
-            if (mediaPlayer != null) {
-                mediaPlayer.setLooping(true);
-
-                AudioAttributes attrs = new AudioAttributes.Builder()
-                        .setUsage(AudioAttributes.USAGE_ALARM)
-                        .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
-                        .build();
-
-                mediaPlayer.setAudioAttributes(attrs);
-                mediaPlayer.start();
-
-                Log.i(TAG, "Alarm sound started: " + currentSoundId);
-            } else {
-                Log.e(TAG, "MediaPlayer.create returned null");
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to play alarm sound", e);
-        }
-    }
-
-    private void stopAlarmSound() {
-        if (mediaPlayer != null) {
-            try {
-                if (mediaPlayer.isPlaying()) mediaPlayer.stop();
-                mediaPlayer.release();
-            } catch (Exception e) {
-                Log.e(TAG, "Error stopping MediaPlayer", e);
-            }
-            mediaPlayer = null;
-        }
-    }
-
-    private void scheduleTimeout() {
-        cancelTimeout();
-        timeoutRunnable = () -> {
-            Log.w(TAG, "Alarm auto-stopped after 120 seconds");
-            stopAlarm();
-        };
-        timeoutHandler.postDelayed(timeoutRunnable, ALARM_TIMEOUT_MS);
-    }
-
-    private void cancelTimeout() {
-        if (timeoutHandler != null && timeoutRunnable != null) {
-            timeoutHandler.removeCallbacks(timeoutRunnable);
-            timeoutRunnable = null;
-        }
-    }
-
-    private int getSoundResource(String soundId) {
-        if (soundId == null) return 0;
-
-        switch (soundId) {
-            case "original":
-                return getResId("alert_original");
-            case "classic":
-                return getResId("alert_classic");
-            case "chime":
-                return getResId("alert_chime");
-            case "bell":
-                return getResId("alert_bell");
-            case "ping":
-                return getResId("alert_ping");
-            case "tone":
-                return getResId("alert_tone");
-            default:
-                return getResId("alert_original");
-        }
-    }
-
-    private int getResId(String resName) {
-        return getResources().getIdentifier(resName, "raw", getPackageName());
+        return largeIcon;
     }
 }
\ No newline at end of file
@@ -0,0 +1,404 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Persistent store of scheduled user alarms.
+ *
+ * Rows live in AlarmDatabase, keyed by alarm id and indexed by trigger time, so
+ * point lookups, next-due and range queries never load the whole set.
+ *
+ * Every row carries a version that each write bumps. A record read from the
+ * store remembers its version, and writing it back is a compare-and-swap: if
+ * someone else changed the row in between, the write is refused instead of
+ * silently undoing theirs. Writers lock one of STRIPES by alarm id for the
+ * duration of a single statement or transaction, so writes to different alarms
+ * never wait on each other; SQLite (WAL mode) commits each one atomically and
+ * readers never block. AlarmManager work that must stay in step with a row, such
+ * as a reschedule pass arming it or a cancel disarming it, runs under the same
+ * lock through readLocked() and remove(context, alarmId, disarm).
+ */
+public class AlarmStore {
+
+    private static final String TAG = "AlarmStore";
+
+    private static final ExecutorService WRITER =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "alarm-store"));
+
+    private static final int STRIPES = 16;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[STRIPES];
+
+    static {
+        for (int i = 0; i < STRIPES; i++) LOCKS[i] = new ReentrantLock();
+    }
+
+    // Attempts for update() before giving up on a row that keeps changing underneath
+    private static final int MAX_CAS_ATTEMPTS = 5;
+
+    private static final String SELECT = "SELECT " + TextUtils.join(", ", AlarmDatabase.COLUMNS)
+            + " FROM " + AlarmDatabase.TABLE;
+
+    // Recurring means a repeat rule other than none, and a "days" rule with at least one day
+    private static final String ONE_SHOT = "(" + AlarmDatabase.COL_REPEAT + " = '" + AlarmRecord.REPEAT_NONE
+            + "' OR (" + AlarmDatabase.COL_REPEAT + " = '" + AlarmRecord.REPEAT_DAYS
+            + "' AND " + AlarmDatabase.COL_REPEAT_DAYS + " = 0))";
+
+    // Approximate payload per row, for the compaction diagnostics
+    private static final String ROW_BYTES = "length(" + AlarmDatabase.COL_ID + ") + length("
+            + AlarmDatabase.COL_LABEL + ") + length(" + AlarmDatabase.COL_SOUND + ") + length("
+            + AlarmDatabase.COL_REPEAT + ") + 32";
+
+    private static final String UPDATE_ROW = "UPDATE " + AlarmDatabase.TABLE + " SET "
+            + AlarmDatabase.COL_LABEL + " = ?, " + AlarmDatabase.COL_TRIGGER + " = ?, "
+            + AlarmDatabase.COL_SOUND + " = ?, " + AlarmDatabase.COL_PRIORITY + " = ?, "
+            + AlarmDatabase.COL_REPEAT + " = ?, " + AlarmDatabase.COL_REPEAT_DAYS + " = ?, "
+            + AlarmDatabase.COL_FIRED_AT + " = ?, " + AlarmDatabase.COL_VERSION + " = "
+            + AlarmDatabase.COL_VERSION + " + 1 WHERE " + AlarmDatabase.COL_ID + " = ?";
+
+    // Unversioned records overwrite; versioned ones are a compare-and-swap.
+    // Returns false if a versioned record was stale and nothing was written.
+    public static boolean put(Context context, AlarmRecord record) {
+        ReentrantLock lock = lockFor(record.alarmId);
+        lock.lock();
+        try {
+            if (!write(db(context), record)) {
+                Log.w(TAG, "Stale write refused for alarm: " + record.alarmId + " (v" + record.version + ")");
+                return false;
+            }
+            OccurrenceHorizon.onPut(record);
+        } finally {
+            lock.unlock();
+        }
+        Log.i(TAG, "Saved alarm: " + record.alarmId);
+        return true;
+    }
+
+    public static void remove(Context context, String alarmId) {
+        remove(context, alarmId, null);
+    }
+
+    // disarm gets the row before it is deleted, under the same lock, so a reschedule pass
+    // can't re-arm the alarm in between and its request code is only freed once disarmed
+    public static void remove(Context context, String alarmId, Consumer<AlarmRecord> disarm) {
+        ReentrantLock lock = lockFor(alarmId);
+        lock.lock();
+        try {
+            if (disarm != null) {
+                AlarmRecord current = get(context, alarmId);
+                if (current != null) disarm.accept(current);
+            }
+            if (delete(db(context), alarmId, 0)) {
+                Log.i(TAG, "Removed alarm: " + alarmId);
+            }
+            OccurrenceHorizon.onRemove(alarmId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Read-modify-write of one alarm, retried while other writers get in between.
+    // fn gets the current row (null if absent) and returns the new one, null to delete,
+    // or the same instance to leave it. Returns the row as stored afterwards.
+    public static AlarmRecord update(Context context, String alarmId, UnaryOperator<AlarmRecord> fn) {
+        for (int attempt = 0; attempt < MAX_CAS_ATTEMPTS; attempt++) {
+            AlarmRecord current = get(context, alarmId);
+            AlarmRecord next = fn.apply(current);
+            if (next == current) return current;
+
+            ReentrantLock lock = lockFor(alarmId);
+            lock.lock();
+            try {
+                if (next == null) {
+                    if (current == null || delete(db(context), alarmId, current.version)) {
+                        OccurrenceHorizon.onRemove(alarmId);
+                        return null;
+                    }
+                } else if (write(db(context), current != null ? withVersion(next, current.version) : next)) {
+                    OccurrenceHorizon.onPut(next);
+                    return get(context, alarmId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        Log.w(TAG, "Gave up updating alarm " + alarmId + " after " + MAX_CAS_ATTEMPTS + " attempts");
+        return get(context, alarmId);
+    }
+
+    // Writes many updates in one transaction. Versioned puts and removals are
+    // compare-and-swap; the ids of those that lost a race are returned, untouched.
+    public static List<String> applyBatch(Context context, Collection<AlarmRecord> puts,
+                                          Collection<AlarmRecord> removals) {
+        List<String> conflicts = new ArrayList<>();
+        if (puts.isEmpty() && removals.isEmpty()) return conflicts;
+
+        boolean[] stripes = new boolean[STRIPES];
+        for (AlarmRecord record : puts) stripes[stripe(record.alarmId)] = true;
+        for (AlarmRecord record : removals) stripes[stripe(record.alarmId)] = true;
+
+        List<AlarmRecord> written = new ArrayList<>(puts.size());
+        List<String> removed = new ArrayList<>(removals.size());
+        lockStripes(stripes);
+        try {
+            SQLiteDatabase db = db(context);
+            db.beginTransaction();
+            try {
+                for (AlarmRecord record : removals) {
+                    if (delete(db, record.alarmId, record.version)) {
+                        removed.add(record.alarmId);
+                    } else if (record.version > 0) {
+                        conflicts.add(record.alarmId);
+                    }
+                }
+                for (AlarmRecord record : puts) {
+                    if (write(db, record)) {
+                        written.add(record);
+                    } else {
+                        conflicts.add(record.alarmId);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            for (String alarmId : removed) OccurrenceHorizon.onRemove(alarmId);
+            for (AlarmRecord record : written) OccurrenceHorizon.onPut(record);
+        } finally {
+            unlockStripes(stripes);
+        }
+        Log.i(TAG, "Batch: " + written.size() + " saved, " + removed.size() + " removed, "
+                + conflicts.size() + " conflicts");
+        return conflicts;
+    }
+
+    // A single UPDATE, so it can never undo a concurrent reschedule of the same alarm
+    public static void markFired(Context context, String alarmId, long firedAtMs) {
+        ReentrantLock lock = lockFor(alarmId);
+        lock.lock();
+        try {
+            SQLiteStatement s = db(context).compileStatement("UPDATE " + AlarmDatabase.TABLE
+                    + " SET " + AlarmDatabase.COL_FIRED_AT + " = ?, " + AlarmDatabase.COL_VERSION + " = "
+                    + AlarmDatabase.COL_VERSION + " + 1 WHERE " + AlarmDatabase.COL_ID + " = ?");
+            int changed;
+            try {
+                s.bindLong(1, firedAtMs);
+                s.bindString(2, alarmId);
+                changed = s.executeUpdateDelete();
+            } finally {
+                s.close();
+            }
+            if (changed == 0) return;
+
+            AlarmRecord record = get(context, alarmId);
+            if (record != null) OccurrenceHorizon.onPut(record);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // fn gets the current row (null if absent) while the alarm's stripe lock is held,
+    // so no write to that alarm can land between the read and what fn does with it
+    public static <T> T readLocked(Context context, String alarmId, Function<AlarmRecord, T> fn) {
+        ReentrantLock lock = lockFor(alarmId);
+        lock.lock();
+        try {
+            return fn.apply(get(context, alarmId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The alarm's PendingIntent request code, or 0 if it isn't stored
+    public static int requestCode(Context context, String alarmId) {
+        try (Cursor c = db(context).rawQuery("SELECT " + AlarmDatabase.COL_REQUEST_CODE + " FROM "
+                + AlarmDatabase.TABLE + " WHERE " + AlarmDatabase.COL_ID + " = ?", new String[]{alarmId})) {
+            return c.moveToFirst() ? c.getInt(0) : 0;
+        }
+    }
+
+    // Primary key lookup
+    public static AlarmRecord get(Context context, String alarmId) {
+        List<AlarmRecord> found = query(context, " WHERE " + AlarmDatabase.COL_ID + " = ?",
+                new String[]{alarmId});
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Soonest stored trigger strictly after afterMs; recurring alarms count with their armed occurrence
+    public static AlarmRecord next(Context context, long afterMs) {
+        List<AlarmRecord> found = query(context, " WHERE " + AlarmDatabase.COL_TRIGGER + " > ? ORDER BY "
+                + AlarmDatabase.COL_TRIGGER + " LIMIT 1", new String[]{Long.toString(afterMs)});
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    // Stored triggers in [fromMs, toMs), soonest first
+    public static List<AlarmRecord> range(Context context, long fromMs, long toMs, int limit) {
+        return query(context, " WHERE " + AlarmDatabase.COL_TRIGGER + " >= ? AND "
+                        + AlarmDatabase.COL_TRIGGER + " < ? ORDER BY " + AlarmDatabase.COL_TRIGGER
+                        + " LIMIT " + Math.max(0, limit),
+                new String[]{Long.toString(fromMs), Long.toString(toMs)});
+    }
+
+    public static List<AlarmRecord> findByLabel(Context context, String label, int limit) {
+        return query(context, " WHERE " + AlarmDatabase.COL_LABEL + " = ? ORDER BY "
+                + AlarmDatabase.COL_TRIGGER + " LIMIT " + Math.max(0, limit), new String[]{label});
+    }
+
+    public static class Compaction {
+        public final int removed;
+        public final long reclaimedBytes;
+        public final int liveEntries;
+        public final long liveBytes;
+
+        Compaction(int removed, long reclaimedBytes, int liveEntries, long liveBytes) {
+            this.removed = removed;
+            this.reclaimedBytes = reclaimedBytes;
+            this.liveEntries = liveEntries;
+            this.liveBytes = liveBytes;
+        }
+    }
+
+    // Drops one-shot alarms that have rung, or are older than keepOverdueMs and
+    // can no longer be caught up. Recurring alarms stay.
+    public static Compaction compact(Context context, long nowMs, long keepOverdueMs) {
+        String expired = ONE_SHOT + " AND (" + AlarmDatabase.COL_FIRED_AT + " >= " + AlarmDatabase.COL_TRIGGER
+                + " OR " + AlarmDatabase.COL_TRIGGER + " < ?)";
+        String[] args = {Long.toString(nowMs - keepOverdueMs)};
+
+        SQLiteDatabase db = db(context);
+        long[] gone;
+        long[] live;
+        // The only writer that touches rows it doesn't know in advance, so it takes every stripe
+        boolean[] stripes = new boolean[STRIPES];
+        Arrays.fill(stripes, true);
+        lockStripes(stripes);
+        try {
+            db.beginTransaction();
+            try {
+                gone = countAndBytes(db, " WHERE " + expired, args);
+                // Only past one-shots go, and the horizon trims those on its own
+                if (gone[0] > 0) db.delete(AlarmDatabase.TABLE, expired, args);
+                live = countAndBytes(db, "", null);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        } finally {
+            unlockStripes(stripes);
+        }
+        return new Compaction((int) gone[0], gone[1], (int) live[0], live[1]);
+    }
+
+    // Store writes that should not hold up a receiver or the UI
+    public static void executeAsync(Runnable task) {
+        WRITER.execute(task);
+    }
+
+    // Streams rows in trigger time order without building a list
+    public static void forEach(Context context, Consumer<AlarmRecord> consumer) {
+        try (Cursor c = db(context).rawQuery(SELECT + " ORDER BY " + AlarmDatabase.COL_TRIGGER, null)) {
+            while (c.moveToNext()) consumer.accept(AlarmDatabase.fromCursor(c));
+        }
+    }
+
+    // Ordered by trigger time
+    public static List<AlarmRecord> loadAll(Context context) {
+        List<AlarmRecord> records = new ArrayList<>();
+        forEach(context, records::add);
+        return records;
+    }
+
+    private static List<AlarmRecord> query(Context context, String where, String[] args) {
+        List<AlarmRecord> records = new ArrayList<>();
+        try (Cursor c = db(context).rawQuery(SELECT + where, args)) {
+            while (c.moveToNext()) records.add(AlarmDatabase.fromCursor(c));
+        }
+        return records;
+    }
+
+    private static long[] countAndBytes(SQLiteDatabase db, String where, String[] args) {
+        try (Cursor c = db.rawQuery("SELECT COUNT(*), COALESCE(SUM(" + ROW_BYTES + "), 0) FROM "
+                + AlarmDatabase.TABLE + where, args)) {
+            return c.moveToFirst() ? new long[]{c.getLong(0), c.getLong(1)} : new long[]{0, 0};
+        }
+    }
+
+    // Versioned records only replace the row they were read from; others insert or overwrite
+    private static boolean write(SQLiteDatabase db, AlarmRecord record) {
+        SQLiteStatement s = db.compileStatement(record.version > 0
+                ? UPDATE_ROW + " AND " + AlarmDatabase.COL_VERSION + " = ?"
+                : UPDATE_ROW);
+        try {
+            s.bindString(1, record.label);
+            s.bindLong(2, record.triggerTimeMs);
+            s.bindString(3, record.soundId);
+            s.bindLong(4, record.priority);
+            s.bindString(5, record.repeat);
+            s.bindLong(6, record.repeatDays);
+            s.bindLong(7, record.firedAtMs);
+            s.bindString(8, record.alarmId);
+            if (record.version > 0) s.bindLong(9, record.version);
+            if (s.executeUpdateDelete() > 0) return true;
+        } finally {
+            s.close();
+        }
+        // A versioned record whose row is gone was deleted by someone else
+        if (record.version > 0) return false;
+        AlarmDatabase.insert(db, record);
+        return true;
+    }
+
+    // version 0 deletes unconditionally
+    private static boolean delete(SQLiteDatabase db, String alarmId, long version) {
+        return version > 0
+                ? db.delete(AlarmDatabase.TABLE, AlarmDatabase.COL_ID + " = ? AND " + AlarmDatabase.COL_VERSION
+                        + " = ?", new String[]{alarmId, Long.toString(version)}) > 0
+                : db.delete(AlarmDatabase.TABLE, AlarmDatabase.COL_ID + " = ?", new String[]{alarmId}) > 0;
+    }
+
+    private static AlarmRecord withVersion(AlarmRecord r, long version) {
+        return new AlarmRecord(r.alarmId, r.label, r.triggerTimeMs, r.soundId, r.priority, r.repeat,
+                r.repeatDays, r.firedAtMs, version, r.requestCode);
+    }
+
+    private static int stripe(String alarmId) {
+        return (alarmId.hashCode() & 0x7fffffff) % STRIPES;
+    }
+
+    private static ReentrantLock lockFor(String alarmId) {
+        return LOCKS[stripe(alarmId)];
+    }
+
+    // Always in index order, so two multi-stripe writers cannot deadlock
+    private static void lockStripes(boolean[] stripes) {
+        for (int i = 0; i < STRIPES; i++) {
+            if (stripes[i]) LOCKS[i].lock();
+        }
+    }
+
+    private static void unlockStripes(boolean[] stripes) {
+        for (int i = STRIPES - 1; i >= 0; i--) {
+            if (stripes[i]) LOCKS[i].unlock();
+        }
+    }
+
+    // Device-protected so boot can rearm and the fire path can update it before first unlock
+    private static SQLiteDatabase db(Context context) {
+        return AlarmDatabase.get(context).getWritableDatabase();
+    }
+}
@@ -0,0 +1,114 @@
+package com.feroapps.tradertime;
+
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the alarm store proportional to live alarms.
+ *
+ * Compaction runs as a daily job while the device is idle, or when the plugin's
+ * compactStore is called; never on the fire path, since it locks every store
+ * stripe. Results are kept for diagnostics.
+ */
+public class AlarmStoreCompactionJob extends JobService {
+
+    private static final String TAG = "AlarmStoreCompaction";
+
+    private static final int JOB_ID = 0x7443; // "tC"
+    private static final long IDLE_PERIOD_MS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String PREFS_NAME = "TraderTimeDiagnostics";
+    private static final String KEY_LAST_RUN_MS = "compaction_last_run_ms";
+    private static final String KEY_LAST_REASON = "compaction_last_reason";
+    private static final String KEY_LAST_REMOVED = "compaction_last_removed";
+    private static final String KEY_LAST_RECLAIMED = "compaction_last_reclaimed_bytes";
+    private static final String KEY_TOTAL_RECLAIMED = "compaction_total_reclaimed_bytes";
+    private static final String KEY_LIVE_ENTRIES = "store_live_entries";
+    private static final String KEY_LIVE_BYTES = "store_live_bytes";
+
+    public static class Stats {
+        public long lastRunMs;
+        public String lastReason;
+        public int lastRemoved;
+        public long lastReclaimedBytes;
+        public long totalReclaimedBytes;
+        public int liveEntries;
+        public long liveBytes;
+    }
+
+    // Idempotent; an already pending job is left alone
+    public static void schedule(Context context) {
+        JobScheduler js = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (js == null || js.getPendingJob(JOB_ID) != null) return;
+
+        JobInfo job = new JobInfo.Builder(JOB_ID, new ComponentName(context, AlarmStoreCompactionJob.class))
+                .setRequiresDeviceIdle(true)
+                .setPeriodic(IDLE_PERIOD_MS)
+                .setPersisted(true)
+                .build();
+        int result = js.schedule(job);
+        Log.i(TAG, "Idle compaction job " + (result == JobScheduler.RESULT_SUCCESS ? "scheduled" : "rejected"));
+    }
+
+    // Callers run this on the store executor, so it never races a schedule or cancel
+    static AlarmStore.Compaction compact(Context context, String reason) {
+        long now = System.currentTimeMillis();
+        // Overdue one-shots are kept while boot catch-up could still report them
+        AlarmStore.Compaction c = AlarmStore.compact(context, now, CatchUpPolicy.getWindowMs(context));
+
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        prefs.edit()
+                .putLong(KEY_LAST_RUN_MS, now)
+                .putString(KEY_LAST_REASON, reason)
+                .putInt(KEY_LAST_REMOVED, c.removed)
+                .putLong(KEY_LAST_RECLAIMED, c.reclaimedBytes)
+                .putLong(KEY_TOTAL_RECLAIMED, prefs.getLong(KEY_TOTAL_RECLAIMED, 0) + c.reclaimedBytes)
+                .putInt(KEY_LIVE_ENTRIES, c.liveEntries)
+                .putLong(KEY_LIVE_BYTES, c.liveBytes)
+                .apply();
+
+        Log.i(TAG, "Compaction (" + reason + "): removed " + c.removed + " entries, reclaimed "
+                + c.reclaimedBytes + " bytes, " + c.liveEntries + " live (" + c.liveBytes + " bytes)");
+        return c;
+    }
+
+    public static Stats getStats(Context context) {
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        Stats s = new Stats();
+        s.lastRunMs = prefs.getLong(KEY_LAST_RUN_MS, 0);
+        s.lastReason = prefs.getString(KEY_LAST_REASON, null);
+        s.lastRemoved = prefs.getInt(KEY_LAST_REMOVED, 0);
+        s.lastReclaimedBytes = prefs.getLong(KEY_LAST_RECLAIMED, 0);
+        s.totalReclaimedBytes = prefs.getLong(KEY_TOTAL_RECLAIMED, 0);
+        s.liveEntries = prefs.getInt(KEY_LIVE_ENTRIES, 0);
+        s.liveBytes = prefs.getLong(KEY_LIVE_BYTES, 0);
+        return s;
+    }
+
+    @Override
+    public boolean onStartJob(JobParameters params) {
+        Context appContext = getApplicationContext();
+        AlarmStore.executeAsync(() -> {
+            try {
+                compact(appContext, "idle");
+            } finally {
+                jobFinished(params, false);
+            }
+        });
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Compaction is short and idempotent; the next idle window will redo it
+        return false;
+    }
+}
@@ -0,0 +1,36 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+
+/**
+ * How alarms that came due while the device was off are handled.
+ *
+ * Missed within the window: reported together in one summary alert.
+ * Older: dropped silently. Recurring alarms are rolled forward either way.
+ */
+public class CatchUpPolicy {
+
+    private static final String PREFS_NAME = "TraderTimeSettings";
+    private static final String WINDOW_KEY = "catch_up_window_minutes";
+
+    public static final int DEFAULT_WINDOW_MINUTES = 30;
+    public static final int MAX_WINDOW_MINUTES = 24 * 60;
+
+    public static int getWindowMinutes(Context context) {
+        return DirectBootStorage.prefs(context, PREFS_NAME)
+                .getInt(WINDOW_KEY, DEFAULT_WINDOW_MINUTES);
+    }
+
+    public static long getWindowMs(Context context) {
+        return getWindowMinutes(context) * 60_000L;
+    }
+
+    // 0 disables the summary; missed alarms are then only rolled forward or dropped
+    public static void setWindowMinutes(Context context, int minutes) {
+        int clamped = Math.max(0, Math.min(MAX_WINDOW_MINUTES, minutes));
+        DirectBootStorage.prefs(context, PREFS_NAME)
+                .edit()
+                .putInt(WINDOW_KEY, clamped)
+                .apply();
+    }
+}
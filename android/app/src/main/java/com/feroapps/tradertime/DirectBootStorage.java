@@ -0,0 +1,52 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.UserManager;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Device-protected storage for everything the fire path needs.
+ *
+ * After a reboot credential-encrypted storage stays locked until the first
+ * unlock; alarm data kept here lets boot rearm and alarms ring before that.
+ * Preferences that used to live in credential storage are moved over the
+ * first time they are opened while the user is unlocked.
+ */
+public class DirectBootStorage {
+
+    private static final String TAG = "DirectBootStorage";
+
+    private static final Set<String> MIGRATED = new HashSet<>();
+
+    public static Context context(Context context) {
+        if (context.isDeviceProtectedStorage()) return context;
+        return context.getApplicationContext().createDeviceProtectedStorageContext();
+    }
+
+    public static SharedPreferences prefs(Context context, String name) {
+        Context deviceContext = context(context);
+        migrate(context, deviceContext, name);
+        return deviceContext.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    public static boolean isUserUnlocked(Context context) {
+        UserManager um = (UserManager) context.getSystemService(Context.USER_SERVICE);
+        return um == null || um.isUserUnlocked();
+    }
+
+    private static void migrate(Context context, Context deviceContext, String name) {
+        synchronized (MIGRATED) {
+            if (MIGRATED.contains(name) || !isUserUnlocked(context)) return;
+            // No-op if there is nothing left in credential storage
+            if (deviceContext.moveSharedPreferencesFrom(context.getApplicationContext(), name)) {
+                MIGRATED.add(name);
+            } else {
+                Log.w(TAG, "Could not move preferences to device storage: " + name);
+            }
+        }
+    }
+}
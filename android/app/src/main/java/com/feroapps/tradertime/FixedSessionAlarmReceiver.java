@@ -18,5 +18,11 @@ public class FixedSessionAlarmReceiver extends BroadcastReceiver {
 
         // Reschedule next occurrence (scheduler will be created later)
         FixedSessionScheduler.scheduleNextForOneSession(context, sessionId);
+        AlarmEvents.alarmFired(AlarmEvents.KIND_SESSION, sessionId,
+                FixedSessionNotifier.sessionTitle(sessionId), System.currentTimeMillis());
+        AlarmEvents.nextDueChangedAsync(context);
+
+        PendingResult pendingResult = goAsync();
+        WakeupLedger.recordAsync(context, WakeupLedger.SOURCE_FIXED_SESSION, pendingResult::finish);
     }
 }
@@ -84,7 +84,7 @@ public class FixedSessionNotifier {
         nm.createNotificationChannel(ch);
     }
 
-    private static String sessionTitle(String sessionId) {
+    static String sessionTitle(String sessionId) {
         switch (sessionId) {
             case "SYDNEY_START": return "Start of Sydney session";
             case "TOKYO_SYDNEY_OVERLAP": return "Tokyo + Sydney overlap";
@@ -4,13 +4,24 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
+import android.content.SharedPreferences;
+import android.util.Log;
 
 import java.util.Calendar;
 import java.util.TimeZone;
 
 public class FixedSessionScheduler {
 
+    private static final String TAG = "FixedSessionScheduler";
+
+    private static final String PREFS_NAME = "TraderTimeSettings";
+    private static final String KEY_ARMED_FINGERPRINT = "fixed_session_armed_fingerprint";
+    private static final String KEY_LEGACY_CODES_CLEARED = "fixed_session_legacy_codes_cleared";
+
+    // Request code of SESSIONS[i] is REQUEST_CODE_BASE + i. The receiver differs from
+    // user alarms, so the range may overlap theirs.
+    private static final int REQUEST_CODE_BASE = 1;
+
     // Session IDs (stable keys)
     public static final String SYDNEY_START = "SYDNEY_START";
     public static final String TOKYO_SYDNEY_OVERLAP = "TOKYO_SYDNEY_OVERLAP";
@@ -22,7 +33,8 @@ public class FixedSessionScheduler {
     public static final String NY_CLOSE_SYDNEY_OPENS = "NY_CLOSE_SYDNEY_OPENS";
     public static final String END_OF_WEEK_NY_CLOSE = "END_OF_WEEK_NY_CLOSE";
 
-    // Hardcoded fixed sessions (UTC day-of-week: 0=Sun..6=Sat)
+    // Hardcoded fixed sessions (UTC day-of-week: 0=Sun..6=Sat).
+    // Append only: a session's index is its PendingIntent request code.
     private static final FixedSession[] SESSIONS = new FixedSession[] {
             new FixedSession(SYDNEY_START, 21, 0, new int[]{0}),
             new FixedSession(TOKYO_SYDNEY_OVERLAP, 0, 0, new int[]{1,2,3,4,5}),
@@ -42,41 +54,126 @@ public class FixedSessionScheduler {
         }
     }
 
+    // Arms all sessions unless the stored fingerprint shows the same schedule is already
+    // armed. Blocking; returns true if anything was armed.
+    public static boolean armAllIfChanged(Context context) {
+        long now = System.currentTimeMillis();
+        AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        boolean exact = UserAlarmScheduler.canScheduleExact(am);
+
+        long[] triggers = new long[SESSIONS.length];
+        long fingerprint = exact ? 1 : 0;
+        String soonest = null;
+        long soonestMs = Long.MAX_VALUE;
+        for (int i = 0; i < SESSIONS.length; i++) {
+            FixedSession s = SESSIONS[i];
+            triggers[i] = computeNextUtcTriggerTimeMs(s.utcHour, s.utcMinute, s.repeatDaysUtc, now);
+            fingerprint = 31 * fingerprint + s.sessionId.hashCode();
+            fingerprint = 31 * fingerprint + triggers[i];
+            if (triggers[i] < soonestMs) {
+                soonestMs = triggers[i];
+                soonest = s.sessionId;
+            }
+        }
+
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        cancelLegacyRegistrations(context, am);
+        // A force stop or app update drops the alarms but not the prefs, so the
+        // soonest session's PendingIntent doubles as a sentinel
+        boolean sentinelAlive = soonest != null
+                && buildPendingIntent(context, soonest, PendingIntent.FLAG_NO_CREATE) != null;
+        if (sentinelAlive && prefs.getLong(KEY_ARMED_FINGERPRINT, 0) == fingerprint) {
+            Log.i(TAG, "Fixed sessions already armed - skipping");
+            return false;
+        }
+
+        for (int i = 0; i < SESSIONS.length; i++) {
+            arm(context, am, SESSIONS[i].sessionId, triggers[i], exact);
+        }
+        prefs.edit().putLong(KEY_ARMED_FINGERPRINT, fingerprint).apply();
+        Log.i(TAG, "Armed " + SESSIONS.length + " fixed sessions (exact=" + exact + ")");
+        return true;
+    }
+
     // Cancels ALL fixed session alarms
     public static void cancelAllFixedSessions(Context context) {
         AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        cancelLegacyRegistrations(context, am);
         for (FixedSession s : SESSIONS) {
-            PendingIntent pi = buildPendingIntent(context, s.sessionId, PendingIntent.FLAG_NO_CREATE);
-            if (pi != null) {
-                am.cancel(pi);
-                pi.cancel();
-            }
+            cancel(am, buildPendingIntent(context, s.sessionId, PendingIntent.FLAG_NO_CREATE));
+        }
+    }
+
+    // Sessions armed by older versions used the hashCode of a prefixed id; drop them once.
+    // Also run by the reschedule pipeline, which may arm sessions before the app is opened.
+    static void cancelLegacyRegistrations(Context context, AlarmManager am) {
+        SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+        if (prefs.getBoolean(KEY_LEGACY_CODES_CLEARED, false)) return;
+        for (FixedSession s : SESSIONS) {
+            Intent i = new Intent(context, FixedSessionAlarmReceiver.class);
+            cancel(am, PendingIntent.getBroadcast(context, ("fixed_session_" + s.sessionId).hashCode(), i,
+                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE));
         }
+        prefs.edit().putBoolean(KEY_LEGACY_CODES_CLEARED, true).apply();
+        Log.i(TAG, "Cleared legacy fixed session registrations");
+    }
+
+    private static void cancel(AlarmManager am, PendingIntent pi) {
+        if (pi == null) return;
+        am.cancel(pi);
+        pi.cancel();
     }
 
     // Schedules the next occurrence for one sessionId
     public static void scheduleNextForOneSession(Context context, String sessionId) {
-        FixedSession s = findSession(sessionId);
-        if (s == null) return;
-
-        long triggerTimeMs = computeNextUtcTriggerTimeMs(s.utcHour, s.utcMinute, s.repeatDaysUtc);
+        long triggerTimeMs = nextTriggerTimeMs(sessionId, System.currentTimeMillis());
+        if (triggerTimeMs < 0) return;
 
         AlarmManager am = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        arm(context, am, sessionId, triggerTimeMs, UserAlarmScheduler.canScheduleExact(am));
+    }
 
-        PendingIntent pi = buildPendingIntent(context, s.sessionId, 0);
+    public static String[] sessionIds() {
+        String[] ids = new String[SESSIONS.length];
+        for (int i = 0; i < SESSIONS.length; i++) {
+            ids[i] = SESSIONS[i].sessionId;
+        }
+        return ids;
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            am.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pi);
-        } else {
-            am.setExact(AlarmManager.RTC_WAKEUP, triggerTimeMs, pi);
+    // Next occurrence strictly after nowMs, or -1 for an unknown session
+    static long nextTriggerTimeMs(String sessionId, long nowMs) {
+        FixedSession s = findSession(sessionId);
+        if (s == null) return -1;
+        return computeNextUtcTriggerTimeMs(s.utcHour, s.utcMinute, s.repeatDaysUtc, nowMs);
+    }
+
+    // Session that rings first after nowMs
+    static String nextSessionId(long nowMs) {
+        String nextId = null;
+        long nextMs = Long.MAX_VALUE;
+        for (FixedSession s : SESSIONS) {
+            long t = computeNextUtcTriggerTimeMs(s.utcHour, s.utcMinute, s.repeatDaysUtc, nowMs);
+            if (t < nextMs) {
+                nextMs = t;
+                nextId = s.sessionId;
+            }
         }
+        return nextId;
+    }
+
+    static void arm(Context context, AlarmManager am, String sessionId, long triggerTimeMs, boolean exact) {
+        PendingIntent pi = buildPendingIntent(context, sessionId, 0);
+        UserAlarmScheduler.setAlarm(am, triggerTimeMs, pi, exact);
     }
 
     private static PendingIntent buildPendingIntent(Context context, String sessionId, int extraFlags) {
         Intent i = new Intent(context, FixedSessionAlarmReceiver.class);
         i.putExtra(FixedSessionAlarmReceiver.EXTRA_SESSION_ID, sessionId);
 
-        int requestCode = ("fixed_session_" + sessionId).hashCode();
+        int index = indexOf(sessionId);
+        if (index < 0) throw new IllegalArgumentException("Unknown fixed session: " + sessionId);
+        int requestCode = REQUEST_CODE_BASE + index;
 
         int flags = PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE;
         if (extraFlags != 0) flags = extraFlags | PendingIntent.FLAG_IMMUTABLE;
@@ -85,15 +182,21 @@ public class FixedSessionScheduler {
     }
 
     private static FixedSession findSession(String sessionId) {
-        for (FixedSession s : SESSIONS) {
-            if (s.sessionId.equals(sessionId)) return s;
+        int index = indexOf(sessionId);
+        return index < 0 ? null : SESSIONS[index];
+    }
+
+    private static int indexOf(String sessionId) {
+        for (int i = 0; i < SESSIONS.length; i++) {
+            if (SESSIONS[i].sessionId.equals(sessionId)) return i;
         }
-        return null;
+        return -1;
     }
 
     // Compute next occurrence in UTC matching repeat days + HH:MM
-    private static long computeNextUtcTriggerTimeMs(int utcHour, int utcMinute, int[] repeatDaysUtc) {
+    private static long computeNextUtcTriggerTimeMs(int utcHour, int utcMinute, int[] repeatDaysUtc, long nowMs) {
         Calendar now = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        now.setTimeInMillis(nowMs);
         int nowDow = now.get(Calendar.DAY_OF_WEEK); // 1=Sun..7=Sat
         int nowHour = now.get(Calendar.HOUR_OF_DAY);
         int nowMin = now.get(Calendar.MINUTE);
@@ -123,7 +226,7 @@ public class FixedSessionScheduler {
         }
 
         // fallback: schedule 7 days later at same time
-        Calendar fallback = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        Calendar fallback = (Calendar) now.clone();
         fallback.add(Calendar.DAY_OF_YEAR, 7);
         fallback.set(Calendar.HOUR_OF_DAY, utcHour);
         fallback.set(Calendar.MINUTE, utcMinute);
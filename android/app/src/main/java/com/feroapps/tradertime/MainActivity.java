@@ -5,11 +5,16 @@ import android.content.Context;
 import android.os.Build;
 import android.os.Bundle;
 import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
 
 import com.getcapacitor.BridgeActivity;
 
 public class MainActivity extends BridgeActivity {
 
+    // Set by alarm surfaces; such launches skip optional warm-up like the ads SDK
+    public static final String EXTRA_FROM_ALARM = "from_alarm";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         registerPlugin(UserAlarmPlugin.class);
@@ -17,15 +22,32 @@ public class MainActivity extends BridgeActivity {
 
         super.onCreate(savedInstanceState);
 
-        try {
-            if (canScheduleExactAlarms(this)) {
-                FixedSessionScheduler.scheduleAllEnabledFixedSessions(this);
-            } else {
-                Log.w("MainActivity", "Exact alarms not permitted; fixed sessions not scheduled on launch");
+        armFixedSessionsAfterFirstFrame();
+    }
+
+    // Kept off the startup path: runs on the reschedule worker once the first frame is drawn,
+    // and is a no-op when the armed schedule hasn't changed
+    private void armFixedSessionsAfterFirstFrame() {
+        Context appContext = getApplicationContext();
+        View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                decor.post(() -> AlarmRescheduler.executeAsync(() -> {
+                    try {
+                        if (canScheduleExactAlarms(appContext)) {
+                            FixedSessionScheduler.armAllIfChanged(appContext);
+                        } else {
+                            Log.w("MainActivity", "Exact alarms not permitted; fixed sessions not scheduled on launch");
+                        }
+                    } catch (Throwable t) {
+                        Log.e("MainActivity", "Crash prevented while scheduling fixed sessions", t);
+                    }
+                }));
+                return true;
             }
-        } catch (Throwable t) {
-            Log.e("MainActivity", "Crash prevented while scheduling fixed sessions", t);
-        }
+        });
     }
 
     private static boolean canScheduleExactAlarms(Context context) {
@@ -35,4 +57,4 @@ public class MainActivity extends BridgeActivity {
         }
         return true;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.feroapps.tradertime;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * One summary alert for all alarms that came due while the device was off.
+ */
+public class MissedAlarmNotifier {
+
+    private static final String CHANNEL_ID = "missed_alarms_v1";
+    private static final int NOTIFICATION_ID = 2003;
+    private static final int MAX_LINES = 6;
+
+    public static void showSummary(Context context, List<AlarmRecord> missed) {
+        if (missed.isEmpty()) return;
+        ensureChannel(context);
+
+        String title = missed.size() == 1
+                ? "Missed alarm"
+                : missed.size() + " missed alarms";
+        String text = missed.get(0).label
+                + (missed.size() > 1 ? " and " + (missed.size() - 1) + " more" : "");
+
+        DateFormat timeFormat = DateFormat.getTimeInstance(DateFormat.SHORT);
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = 0; i < missed.size() && i < MAX_LINES; i++) {
+            AlarmRecord r = missed.get(i);
+            style.addLine(timeFormat.format(new Date(r.triggerTimeMs)) + "  " + r.label);
+        }
+        if (missed.size() > MAX_LINES) {
+            style.setSummaryText("+" + (missed.size() - MAX_LINES) + " more");
+        }
+
+        Intent openIntent = new Intent(context, MainActivity.class);
+        openIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pi = PendingIntent.getActivity(
+                context,
+                3,
+                openIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+
+        NotificationCompat.Builder b = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_stat_notification)
+                .setContentTitle(title)
+                .setContentText(text)
+                .setStyle(style)
+                .setNumber(missed.size())
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setAutoCancel(true)
+                .setPriority(NotificationCompat.PRIORITY_HIGH)
+                .setContentIntent(pi);
+
+        NotificationManager nm =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        nm.notify(NOTIFICATION_ID, b.build());
+    }
+
+    private static void ensureChannel(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+
+        NotificationManager nm =
+                (NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE);
+        if (nm.getNotificationChannel(CHANNEL_ID) != null) return;
+
+        NotificationChannel ch = new NotificationChannel(
+                CHANNEL_ID,
+                "Missed Alarms",
+                NotificationManager.IMPORTANCE_HIGH
+        );
+        ch.setDescription("Alarms that came due while the phone was off");
+        nm.createNotificationChannel(ch);
+    }
+}
@@ -0,0 +1,71 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.ads.MobileAds;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the Mobile Ads SDK at most once per process, and only when needed.
+ *
+ * The SDK is initialised by the first ad request or by idle-time warm-up after
+ * the app is on screen, never during bridge startup. Launches from an alarm
+ * therefore don't pay for it unless an ad is actually requested.
+ */
+public class MobileAdsInitializer {
+
+    private static final String TAG = "MobileAdsInitializer";
+
+    private enum State { NOT_STARTED, INITIALIZING, READY }
+
+    private static final Handler MAIN = new Handler(Looper.getMainLooper());
+    private static final List<Runnable> WAITERS = new ArrayList<>();
+    private static State state = State.NOT_STARTED;
+
+    public static synchronized boolean isReady() {
+        return state == State.READY;
+    }
+
+    // onReady runs on the main thread once the SDK is up (immediately if it already is)
+    public static void ensureInitialized(Context context, Runnable onReady) {
+        synchronized (MobileAdsInitializer.class) {
+            if (state == State.READY) {
+                if (onReady != null) MAIN.post(onReady);
+                return;
+            }
+            if (onReady != null) WAITERS.add(onReady);
+            if (state == State.INITIALIZING) return;
+            state = State.INITIALIZING;
+        }
+
+        Context appContext = context.getApplicationContext();
+        long startedAt = SystemClock.elapsedRealtime();
+        MAIN.post(() -> MobileAds.initialize(appContext, initializationStatus -> {
+            List<Runnable> waiters;
+            synchronized (MobileAdsInitializer.class) {
+                state = State.READY;
+                waiters = new ArrayList<>(WAITERS);
+                WAITERS.clear();
+            }
+            long initMs = SystemClock.elapsedRealtime() - startedAt;
+            AdMetrics.sdkInitialized(initMs);
+            Log.d(TAG, "MobileAds initialized in " + initMs + " ms");
+            for (Runnable r : waiters) r.run();
+        }));
+    }
+
+    // Warm-up once the main thread has nothing else to do, after delayMs
+    public static void initializeWhenIdle(Context context, long delayMs) {
+        Context appContext = context.getApplicationContext();
+        MAIN.postDelayed(() -> Looper.myQueue().addIdleHandler(() -> {
+            ensureInitialized(appContext, null);
+            return false;
+        }), delayMs);
+    }
+}
@@ -0,0 +1,205 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precomputed occurrences of every user alarm and fixed session for the next
+ * few weeks, answering "what rings next" (AlarmEvents.nextDue) with a binary
+ * search instead of a scan over every alarm.
+ *
+ * The horizon is built on first use, extended as time advances, and updated per
+ * alarm by AlarmStore writes. It is in memory only and rebuilt per process.
+ * All methods are synchronized on the class and may read the store, so call
+ * them off the main thread.
+ *
+ * It is a read-side cache, not the schedule. These paths deliberately compute
+ * occurrences themselves:
+ * - Arming (UserAlarmScheduler, AlarmRescheduler, FixedSessionScheduler) uses the
+ *   stored row and the session rule, which survive process death; the horizon
+ *   is dropped on every clock or zone change that the rescheduler handles.
+ * - Catch-up (CatchUpPolicy) looks at overdue triggers older than RETAIN_PAST_MS.
+ * - The JS getNextOccurrence computes the trigger passed to scheduleAlarm and
+ *   also runs on iOS and web, where there is no horizon.
+ */
+public class OccurrenceHorizon {
+
+    private static final String TAG = "OccurrenceHorizon";
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long HORIZON_MS = 28 * DAY_MS;
+    // Extend once less than this much of the horizon is left
+    private static final long EXTEND_MARGIN_MS = 7 * DAY_MS;
+    // Matches the longest catch-up window, so overdue occurrences stay queryable
+    private static final long RETAIN_PAST_MS = DAY_MS;
+
+    public static final String KIND_USER = AlarmEvents.KIND_USER;
+    public static final String KIND_SESSION = AlarmEvents.KIND_SESSION;
+
+    public static class Occurrence {
+        public final long timeMs;
+        public final String kind;
+        public final String id;
+        public final String label;
+
+        Occurrence(long timeMs, Owner owner) {
+            this.timeMs = timeMs;
+            this.kind = owner.kind;
+            this.id = owner.id;
+            this.label = owner.label();
+        }
+    }
+
+    private static class Owner {
+        final String kind;
+        final String id;
+        // Null for fixed sessions
+        AlarmRecord record;
+
+        Owner(String kind, String id) {
+            this.kind = kind;
+            this.id = id;
+        }
+
+        String label() {
+            return record != null ? record.label : FixedSessionNotifier.sessionTitle(id);
+        }
+    }
+
+    private static final List<Owner> OWNERS = new ArrayList<>();
+    private static final Map<String, Integer> OWNER_INDEX = new HashMap<>();
+
+    private static final OccurrenceIndex INDEX = new OccurrenceIndex(256);
+
+    private static boolean built;
+    private static long coveredFromMs;
+    private static long coveredToMs;
+
+    // ---- Queries ----
+
+    // First occurrence strictly after nowMs, or null if nothing is scheduled
+    public static synchronized Occurrence next(Context context, long nowMs) {
+        ensure(context, nowMs);
+        int i = INDEX.upperBound(nowMs);
+        return i < INDEX.size() ? new Occurrence(INDEX.timeAt(i), OWNERS.get(INDEX.ownerAt(i))) : null;
+    }
+
+    // ---- Per-alarm invalidation, called by AlarmStore after each write ----
+
+    static synchronized void onPut(AlarmRecord record) {
+        if (!built) return;
+        int index = ownerIndex(KIND_USER, record.alarmId);
+        INDEX.removeOwner(index);
+        OWNERS.get(index).record = record;
+        for (long t : generate(OWNERS.get(index), coveredFromMs, coveredToMs)) {
+            INDEX.insert(t, index);
+        }
+    }
+
+    static synchronized void onRemove(String alarmId) {
+        if (!built) return;
+        Integer index = OWNER_INDEX.get(KIND_USER + ":" + alarmId);
+        if (index == null) return;
+        INDEX.removeOwner(index);
+        OWNERS.get(index).record = null;
+    }
+
+    // Drops everything; the next query rebuilds from the store
+    static synchronized void invalidateAll() {
+        built = false;
+        INDEX.clear();
+        OWNERS.clear();
+        OWNER_INDEX.clear();
+    }
+
+    // ---- Maintenance ----
+
+    private static void ensure(Context context, long nowMs) {
+        if (!built) {
+            build(context, nowMs);
+            return;
+        }
+        if (coveredToMs - nowMs < EXTEND_MARGIN_MS) extend(nowMs + HORIZON_MS);
+        trim(nowMs - RETAIN_PAST_MS);
+    }
+
+    private static void build(Context context, long nowMs) {
+        long startedAt = System.nanoTime();
+        INDEX.clear();
+        coveredFromMs = nowMs - RETAIN_PAST_MS;
+        coveredToMs = coveredFromMs;
+
+        for (String sessionId : FixedSessionScheduler.sessionIds()) {
+            ownerIndex(KIND_SESSION, sessionId);
+        }
+        for (AlarmRecord record : AlarmStore.loadAll(context)) {
+            OWNERS.get(ownerIndex(KIND_USER, record.alarmId)).record = record;
+        }
+        built = true;
+        extend(nowMs + HORIZON_MS);
+        Log.i(TAG, "Built " + INDEX.size() + " occurrences for " + OWNERS.size() + " owners in "
+                + (System.nanoTime() - startedAt) / 1000 + " us");
+    }
+
+    // Everything new lies after coveredToMs, so only the appended tail needs sorting
+    private static void extend(long toMs) {
+        int tailStart = INDEX.size();
+        for (int index = 0; index < OWNERS.size(); index++) {
+            Owner owner = OWNERS.get(index);
+            if (KIND_USER.equals(owner.kind) && owner.record == null) continue;
+            for (long t : generate(owner, coveredToMs, toMs)) {
+                INDEX.append(t, index);
+            }
+        }
+        INDEX.sortTail(tailStart);
+        coveredToMs = toMs;
+    }
+
+    private static void trim(long beforeMs) {
+        if (INDEX.trimBefore(beforeMs) > 0) coveredFromMs = beforeMs;
+    }
+
+    // Occurrences in (fromMs, toMs]; user alarms start at their stored trigger time
+    private static long[] generate(Owner owner, long fromMs, long toMs) {
+        long[] out = new long[8];
+        int n = 0;
+        if (owner.record == null) {
+            long t = FixedSessionScheduler.nextTriggerTimeMs(owner.id, fromMs);
+            while (t > 0 && t <= toMs) {
+                if (n == out.length) out = Arrays.copyOf(out, n * 2);
+                out[n++] = t;
+                t = FixedSessionScheduler.nextTriggerTimeMs(owner.id, t);
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        AlarmRecord record = owner.record;
+        if (!record.isRecurring()) {
+            return record.triggerTimeMs > fromMs && record.triggerTimeMs <= toMs
+                    ? new long[]{record.triggerTimeMs} : new long[0];
+        }
+        long t = Math.max(fromMs, record.triggerTimeMs - 1);
+        t = record.nextOccurrenceAfter(t);
+        while (t > 0 && t <= toMs) {
+            if (n == out.length) out = Arrays.copyOf(out, n * 2);
+            out[n++] = t;
+            t = record.nextOccurrenceAfter(t);
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    private static int ownerIndex(String kind, String id) {
+        String key = kind + ":" + id;
+        Integer index = OWNER_INDEX.get(key);
+        if (index != null) return index;
+        OWNERS.add(new Owner(kind, id));
+        OWNER_INDEX.put(key, OWNERS.size() - 1);
+        return OWNERS.size() - 1;
+    }
+}
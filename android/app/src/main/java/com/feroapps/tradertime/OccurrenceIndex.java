@@ -0,0 +1,125 @@
+package com.feroapps.tradertime;
+
+import java.util.Arrays;
+
+/**
+ * Sorted occurrence times with a parallel array of owner indices, the storage
+ * behind OccurrenceHorizon.
+ *
+ * Primitive arrays keep a few thousand occurrences in two allocations; lookups
+ * are binary searches. Equal times keep their insertion order. Not thread safe.
+ */
+class OccurrenceIndex {
+
+    private long[] times;
+    private int[] owners;
+    private int size;
+
+    OccurrenceIndex(int initialCapacity) {
+        times = new long[Math.max(1, initialCapacity)];
+        owners = new int[times.length];
+    }
+
+    int size() {
+        return size;
+    }
+
+    long timeAt(int i) {
+        return times[i];
+    }
+
+    int ownerAt(int i) {
+        return owners[i];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    // After every equal time
+    void insert(long t, int owner) {
+        grow(size + 1);
+        int at = upperBound(t);
+        System.arraycopy(times, at, times, at + 1, size - at);
+        System.arraycopy(owners, at, owners, at + 1, size - at);
+        times[at] = t;
+        owners[at] = owner;
+        size++;
+    }
+
+    // Unsorted until sortTail() is called with the size from before the first append
+    void append(long t, int owner) {
+        grow(size + 1);
+        times[size] = t;
+        owners[size] = owner;
+        size++;
+    }
+
+    // Insertion sort on parallel primitive arrays; the tail is a few hundred entries at most.
+    // Assumes everything before `from` is sorted and no later than the tail.
+    void sortTail(int from) {
+        for (int i = from + 1; i < size; i++) {
+            long t = times[i];
+            int o = owners[i];
+            int j = i - 1;
+            while (j >= from && times[j] > t) {
+                times[j + 1] = times[j];
+                owners[j + 1] = owners[j];
+                j--;
+            }
+            times[j + 1] = t;
+            owners[j + 1] = o;
+        }
+    }
+
+    // Drops every occurrence of one owner in a single compacting pass
+    void removeOwner(int owner) {
+        int w = 0;
+        for (int r = 0; r < size; r++) {
+            if (owners[r] == owner) continue;
+            times[w] = times[r];
+            owners[w] = owners[r];
+            w++;
+        }
+        size = w;
+    }
+
+    // Drops everything before t; returns the number dropped
+    int trimBefore(long t) {
+        int drop = lowerBound(t);
+        if (drop == 0) return 0;
+        System.arraycopy(times, drop, times, 0, size - drop);
+        System.arraycopy(owners, drop, owners, 0, size - drop);
+        size -= drop;
+        return drop;
+    }
+
+    // First index with times[i] >= t
+    int lowerBound(long t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] < t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    // First index with times[i] > t
+    int upperBound(long t) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[mid] <= t) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= times.length) return;
+        int newLength = Math.max(capacity, times.length * 2);
+        times = Arrays.copyOf(times, newLength);
+        owners = Arrays.copyOf(owners, newLength);
+    }
+}
@@ -0,0 +1,223 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * On-disk cache of decoded alarm sounds.
+ *
+ * Each entry is a small fixed header followed by raw 16-bit little-endian PCM,
+ * so playing it is a memory map plus AudioTrack writes with no codec involved.
+ */
+public class PcmSoundCache {
+
+    private static final String TAG = "PcmSoundCache";
+
+    private static final String CACHE_DIR = "sound_cache";
+    private static final int MAGIC = 0x54545043; // "TTPC"
+    private static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+
+    private static final long CODEC_TIMEOUT_US = 10_000;
+
+    public static class PcmSound {
+        final int sampleRate;
+        final int channelCount;
+        final ByteBuffer data;
+
+        PcmSound(int sampleRate, int channelCount, ByteBuffer data) {
+            this.sampleRate = sampleRate;
+            this.channelCount = channelCount;
+            this.data = data;
+        }
+    }
+
+    public static File cacheDir(Context context) {
+        File dir = new File(context.getFilesDir(), CACHE_DIR);
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create cache dir: " + dir);
+        }
+        return dir;
+    }
+
+    // Decodes the first audio track of the extractor into a cache file.
+    // The extractor must already have its data source set; it is released here.
+    public static void decode(MediaExtractor extractor, File target) throws IOException {
+        decode(extractor, target, false, Long.MAX_VALUE);
+    }
+
+    // Same as decode(), optionally downmixed to mono and cut after maxDurationUs
+    public static void decode(MediaExtractor extractor, File target, boolean mono, long maxDurationUs)
+            throws IOException {
+        MediaCodec codec = null;
+        File tmp = null;
+
+        try {
+            // Unique per call: a preload and a fire-time fallback may decode the same sound at once
+            tmp = File.createTempFile(target.getName(), ".tmp", target.getParentFile());
+
+            int trackIndex = -1;
+            MediaFormat format = null;
+            for (int i = 0; i < extractor.getTrackCount(); i++) {
+                MediaFormat f = extractor.getTrackFormat(i);
+                String mime = f.getString(MediaFormat.KEY_MIME);
+                if (mime != null && mime.startsWith("audio/")) {
+                    trackIndex = i;
+                    format = f;
+                    break;
+                }
+            }
+            if (trackIndex < 0) throw new IOException("No audio track");
+
+            extractor.selectTrack(trackIndex);
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+
+            int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+            int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+            long dataBytes = 0;
+
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                FileChannel out = fos.getChannel();
+                out.position(HEADER_BYTES);
+
+                MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+                boolean inputDone = false;
+                boolean outputDone = false;
+
+                while (!outputDone) {
+                    if (!inputDone) {
+                        int in = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+                        if (in >= 0) {
+                            ByteBuffer inBuf = codec.getInputBuffer(in);
+                            int size = inBuf != null ? extractor.readSampleData(inBuf, 0) : -1;
+                            if (size < 0 || extractor.getSampleTime() > maxDurationUs) {
+                                codec.queueInputBuffer(in, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                                inputDone = true;
+                            } else {
+                                codec.queueInputBuffer(in, 0, size, extractor.getSampleTime(), 0);
+                                extractor.advance();
+                            }
+                        }
+                    }
+
+                    int outIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+                    if (outIndex >= 0) {
+                        ByteBuffer outBuf = codec.getOutputBuffer(outIndex);
+                        if (outBuf != null && info.size > 0) {
+                            outBuf.position(info.offset);
+                            outBuf.limit(info.offset + info.size);
+                            ByteBuffer pcm = mono && channelCount > 1
+                                    ? downmix(outBuf, channelCount)
+                                    : outBuf;
+                            while (pcm.hasRemaining()) {
+                                dataBytes += out.write(pcm);
+                            }
+                        }
+                        codec.releaseOutputBuffer(outIndex, false);
+                        if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                            outputDone = true;
+                        }
+                    } else if (outIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                        MediaFormat outFormat = codec.getOutputFormat();
+                        sampleRate = outFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                        channelCount = outFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                        if (outFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                                && outFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) != AudioFormat.ENCODING_PCM_16BIT) {
+                            throw new IOException("Unsupported PCM encoding");
+                        }
+                    }
+                }
+
+                if (mono) channelCount = 1;
+                if (channelCount < 1 || channelCount > 2) {
+                    throw new IOException("Unsupported channel count: " + channelCount);
+                }
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC);
+                header.putInt(VERSION);
+                header.putInt(sampleRate);
+                header.putInt(channelCount);
+                header.putLong(dataBytes);
+                header.putLong(0L);
+                header.flip();
+                out.write(header, 0);
+                fos.getFD().sync();
+            }
+
+            if (!tmp.renameTo(target)) {
+                throw new IOException("Could not move " + tmp + " to " + target);
+            }
+            Log.i(TAG, "Decoded " + target.getName() + ": " + dataBytes + " bytes, "
+                    + sampleRate + " Hz, " + channelCount + " ch");
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (Exception ignored) {
+                }
+                codec.release();
+            }
+            extractor.release();
+            if (tmp != null && tmp.exists() && !tmp.delete()) {
+                Log.w(TAG, "Could not delete " + tmp);
+            }
+        }
+    }
+
+    private static ByteBuffer downmix(ByteBuffer interleaved, int channelCount) {
+        ShortBuffer in = interleaved.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+        int frames = in.remaining() / channelCount;
+        ByteBuffer mixed = ByteBuffer.allocate(frames * 2).order(ByteOrder.LITTLE_ENDIAN);
+        for (int f = 0; f < frames; f++) {
+            int sum = 0;
+            for (int c = 0; c < channelCount; c++) {
+                sum += in.get();
+            }
+            mixed.putShort((short) (sum / channelCount));
+        }
+        mixed.flip();
+        return mixed;
+    }
+
+    // Memory-maps a cache file. The mapping stays valid after the channel is closed.
+    public static PcmSound map(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_BYTES) throw new IOException("Truncated cache file: " + file);
+
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != VERSION) {
+                throw new IOException("Bad cache header: " + file);
+            }
+
+            int sampleRate = buf.getInt(8);
+            int channelCount = buf.getInt(12);
+            long dataBytes = buf.getLong(16);
+            if (HEADER_BYTES + dataBytes > size) throw new IOException("Truncated cache data: " + file);
+
+            buf.position(HEADER_BYTES);
+            buf.limit((int) (HEADER_BYTES + dataBytes));
+            ByteBuffer data = buf.slice().order(ByteOrder.LITTLE_ENDIAN);
+            return new PcmSound(sampleRate, channelCount, data);
+        }
+    }
+}
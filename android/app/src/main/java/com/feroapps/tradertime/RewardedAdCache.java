@@ -0,0 +1,145 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.ads.AdRequest;
+import com.google.android.gms.ads.LoadAdError;
+import com.google.android.gms.ads.rewarded.RewardedAd;
+import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loaded rewarded ads by ad unit id, one per unit.
+ *
+ * Ads are dropped once they get close to the SDK's one hour expiry. A load that is
+ * already in flight is shared by every caller waiting for that unit, and
+ * prefetch() refills a unit in the background so the next show() is instant.
+ * All state is guarded by the cache's monitor; SDK calls are made on the main thread
+ * once MobileAdsInitializer is ready.
+ */
+public class RewardedAdCache {
+
+    private static final String TAG = "RewardedAdCache";
+
+    // Rewarded ads expire after an hour; leave room for the show itself
+    private static final long EXPIRY_MS = 55 * 60 * 1000;
+
+    public interface Callback {
+        // fromCache is false when the caller had to wait for a network load
+        void onReady(boolean fromCache);
+
+        void onFailed(String message);
+    }
+
+    private static class Entry {
+        final RewardedAd ad;
+        final long loadedAtMs;
+
+        Entry(RewardedAd ad, long loadedAtMs) {
+            this.ad = ad;
+            this.loadedAtMs = loadedAtMs;
+        }
+    }
+
+    private final Context context;
+    private final Map<String, Entry> ads = new HashMap<>();
+    // Units with a load in flight, with everyone waiting for it
+    private final Map<String, List<Callback>> loading = new HashMap<>();
+
+    public RewardedAdCache(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    // Calls back right away if a fresh ad is cached, otherwise when the (shared) load finishes
+    public void ensureLoaded(String adUnitId, Callback callback) {
+        synchronized (this) {
+            if (fresh(adUnitId) == null) {
+                enqueueLoad(adUnitId, callback);
+                return;
+            }
+        }
+        if (callback != null) callback.onReady(true);
+    }
+
+    // Background refill; a no-op if the unit is cached or already loading
+    public void prefetch(String adUnitId) {
+        synchronized (this) {
+            if (fresh(adUnitId) != null || loading.containsKey(adUnitId)) return;
+            Log.d(TAG, "Prefetching rewarded ad for " + adUnitId);
+            enqueueLoad(adUnitId, null);
+        }
+    }
+
+    // Removes and returns the cached ad, or null if there is none or it expired
+    public synchronized RewardedAd take(String adUnitId) {
+        Entry entry = fresh(adUnitId);
+        ads.remove(adUnitId);
+        return entry != null ? entry.ad : null;
+    }
+
+    private Entry fresh(String adUnitId) {
+        Entry entry = ads.get(adUnitId);
+        if (entry == null) return null;
+        if (SystemClock.elapsedRealtime() - entry.loadedAtMs >= EXPIRY_MS) {
+            Log.d(TAG, "Cached rewarded ad for " + adUnitId + " expired");
+            ads.remove(adUnitId);
+            return null;
+        }
+        return entry;
+    }
+
+    private void enqueueLoad(String adUnitId, Callback callback) {
+        List<Callback> waiters = loading.get(adUnitId);
+        if (waiters != null) {
+            if (callback != null) waiters.add(callback);
+            return;
+        }
+        waiters = new ArrayList<>();
+        if (callback != null) waiters.add(callback);
+        loading.put(adUnitId, waiters);
+        // The first ad request is what starts the SDK
+        MobileAdsInitializer.ensureInitialized(context, () -> startLoad(adUnitId));
+    }
+
+    private void startLoad(String adUnitId) {
+        long startedAt = SystemClock.elapsedRealtime();
+        AdMetrics.loadStarted();
+        AdRequest adRequest = new AdRequest.Builder().build();
+        RewardedAd.load(context, adUnitId, adRequest, new RewardedAdLoadCallback() {
+            @Override
+            public void onAdLoaded(@NonNull RewardedAd ad) {
+                List<Callback> waiters;
+                synchronized (RewardedAdCache.this) {
+                    ads.put(adUnitId, new Entry(ad, SystemClock.elapsedRealtime()));
+                    waiters = loading.remove(adUnitId);
+                }
+                long latencyMs = SystemClock.elapsedRealtime() - startedAt;
+                AdMetrics.loadFilled(latencyMs);
+                Log.d(TAG, "Rewarded ad loaded for " + adUnitId + " in " + latencyMs + " ms");
+                if (waiters == null) return;
+                for (Callback c : waiters) c.onReady(false);
+            }
+
+            @Override
+            public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
+                List<Callback> waiters;
+                synchronized (RewardedAdCache.this) {
+                    waiters = loading.remove(adUnitId);
+                }
+                AdMetrics.loadFailed(SystemClock.elapsedRealtime() - startedAt,
+                        loadAdError.getCode() == AdRequest.ERROR_CODE_NO_FILL);
+                Log.e(TAG, "Failed to load rewarded ad: " + loadAdError.getMessage());
+                if (waiters == null) return;
+                for (Callback c : waiters) c.onFailed(loadAdError.getMessage());
+            }
+        });
+    }
+}
@@ -1,6 +1,7 @@
 package com.feroapps.tradertime;
 
 import android.app.Activity;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import com.getcapacitor.JSObject;
@@ -9,40 +10,30 @@ import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.google.android.gms.ads.AdError;
-import com.google.android.gms.ads.AdRequest;
 import com.google.android.gms.ads.FullScreenContentCallback;
-import com.google.android.gms.ads.LoadAdError;
-import com.google.android.gms.ads.MobileAds;
 import com.google.android.gms.ads.rewarded.RewardedAd;
-import com.google.android.gms.ads.rewarded.RewardedAdLoadCallback;
+
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @CapacitorPlugin(name = "RewardedAds")
 public class RewardedAdsPlugin extends Plugin {
     private static final String TAG = "RewardedAdsPlugin";
-    private RewardedAd rewardedAd = null;
-    private boolean isInitialized = false;
-    private String loadedAdUnitId = null;
-    private PluginCall pendingShowCall = null;
-    private boolean userEarnedReward = false;
+    // SDK warm-up once the app has settled, unless it was opened from an alarm
+    private static final long IDLE_INIT_DELAY_MS = 3000;
+
+    private RewardedAdCache adCache;
+    // Unit used by the last load(), for show() calls that don't name one
+    private volatile String lastAdUnitId = null;
 
     @Override
     public void load() {
         super.load();
-        initializeMobileAds();
-    }
+        adCache = new RewardedAdCache(getContext());
 
-    private void initializeMobileAds() {
-        if (isInitialized) return;
-        
         Activity activity = getActivity();
-        if (activity == null) return;
-
-        activity.runOnUiThread(() -> {
-            MobileAds.initialize(activity, initializationStatus -> {
-                isInitialized = true;
-                Log.d(TAG, "MobileAds initialized");
-            });
-        });
+        boolean fromAlarm = activity != null
+                && activity.getIntent().getBooleanExtra(MainActivity.EXTRA_FROM_ALARM, false);
+        if (!fromAlarm) MobileAdsInitializer.initializeWhenIdle(getContext(), IDLE_INIT_DELAY_MS);
     }
 
     @PluginMethod
@@ -52,34 +43,36 @@ public class RewardedAdsPlugin extends Plugin {
             call.reject("adUnitId is required");
             return;
         }
+        lastAdUnitId = adUnitId;
+        long requestedAt = SystemClock.elapsedRealtime();
+
+        // Resolves immediately when a prefetched ad is still fresh
+        adCache.ensureLoaded(adUnitId, new RewardedAdCache.Callback() {
+            @Override
+            public void onReady(boolean fromCache) {
+                AdMetrics.loadRequested(fromCache, SystemClock.elapsedRealtime() - requestedAt);
+                call.resolve();
+            }
+
+            @Override
+            public void onFailed(String message) {
+                AdMetrics.loadRequested(false, SystemClock.elapsedRealtime() - requestedAt);
+                call.reject("Failed to load ad: " + message);
+            }
+        });
+    }
 
-        Activity activity = getActivity();
-        if (activity == null) {
-            call.reject("Activity not available");
+    // Fire-and-forget warm-up; resolves before the ad has loaded
+    @PluginMethod
+    public void prefetch(PluginCall call) {
+        String adUnitId = call.getString("adUnitId");
+        if (adUnitId == null || adUnitId.isEmpty()) {
+            call.reject("adUnitId is required");
             return;
         }
-
-        activity.runOnUiThread(() -> {
-            AdRequest adRequest = new AdRequest.Builder().build();
-            
-            RewardedAd.load(activity, adUnitId, adRequest, new RewardedAdLoadCallback() {
-                @Override
-                public void onAdLoaded(@NonNull RewardedAd ad) {
-                    rewardedAd = ad;
-                    loadedAdUnitId = adUnitId;
-                    Log.d(TAG, "Rewarded ad loaded");
-                    call.resolve();
-                }
-
-                @Override
-                public void onAdFailedToLoad(@NonNull LoadAdError loadAdError) {
-                    rewardedAd = null;
-                    loadedAdUnitId = null;
-                    Log.e(TAG, "Failed to load rewarded ad: " + loadAdError.getMessage());
-                    call.reject("Failed to load ad: " + loadAdError.getMessage());
-                }
-            });
-        });
+        lastAdUnitId = adUnitId;
+        adCache.prefetch(adUnitId);
+        call.resolve();
     }
 
     @PluginMethod
@@ -90,52 +83,61 @@ public class RewardedAdsPlugin extends Plugin {
             return;
         }
 
+        AdMetrics.showRequested();
+        long requestedAt = SystemClock.elapsedRealtime();
+        String adUnitId = call.getString("adUnitId", lastAdUnitId);
+        RewardedAd rewardedAd = adUnitId != null ? adCache.take(adUnitId) : null;
         if (rewardedAd == null) {
+            AdMetrics.showCacheMiss();
             call.reject("No ad loaded. Call load() first.");
             return;
         }
 
-        pendingShowCall = call;
-        userEarnedReward = false;
+        // Per-show state, so overlapping calls can't see each other's reward
+        AtomicBoolean userEarnedReward = new AtomicBoolean(false);
+        long[] shownAt = {0};
 
         activity.runOnUiThread(() -> {
             rewardedAd.setFullScreenContentCallback(new FullScreenContentCallback() {
                 @Override
                 public void onAdDismissedFullScreenContent() {
-                    Log.d(TAG, "Ad dismissed, rewarded: " + userEarnedReward);
-                    rewardedAd = null;
-                    loadedAdUnitId = null;
-                    
-                    if (pendingShowCall != null) {
-                        JSObject result = new JSObject();
-                        result.put("rewarded", userEarnedReward);
-                        pendingShowCall.resolve(result);
-                        pendingShowCall = null;
-                    }
+                    Log.d(TAG, "Ad dismissed, rewarded: " + userEarnedReward.get());
+                    AdMetrics.showDismissed(SystemClock.elapsedRealtime() - shownAt[0], userEarnedReward.get());
+                    adCache.prefetch(adUnitId);
+
+                    JSObject result = new JSObject();
+                    result.put("rewarded", userEarnedReward.get());
+                    call.resolve(result);
                 }
 
                 @Override
                 public void onAdFailedToShowFullScreenContent(@NonNull AdError adError) {
                     Log.e(TAG, "Ad failed to show: " + adError.getMessage());
-                    rewardedAd = null;
-                    loadedAdUnitId = null;
-                    
-                    if (pendingShowCall != null) {
-                        pendingShowCall.reject("Failed to show ad: " + adError.getMessage());
-                        pendingShowCall = null;
-                    }
+                    AdMetrics.showFailed();
+                    adCache.prefetch(adUnitId);
+                    call.reject("Failed to show ad: " + adError.getMessage());
                 }
 
                 @Override
                 public void onAdShowedFullScreenContent() {
                     Log.d(TAG, "Ad showed fullscreen content");
+                    // Callbacks all run on the main thread, so the array needs no locking
+                    shownAt[0] = SystemClock.elapsedRealtime();
+                    AdMetrics.showStarted(shownAt[0] - requestedAt);
+                    // Load the replacement while the user watches this one
+                    adCache.prefetch(adUnitId);
                 }
             });
 
             rewardedAd.show(activity, rewardItem -> {
                 Log.d(TAG, "User earned reward: " + rewardItem.getAmount() + " " + rewardItem.getType());
-                userEarnedReward = true;
+                userEarnedReward.set(true);
             });
         });
     }
+
+    @PluginMethod
+    public void getMetrics(PluginCall call) {
+        call.resolve(AdMetrics.snapshot());
+    }
 }
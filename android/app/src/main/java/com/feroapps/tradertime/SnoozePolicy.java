@@ -0,0 +1,89 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Collection;
+
+/**
+ * How long a snooze lasts and how often an alarm may be snoozed.
+ *
+ * Durations are tiered: the first snooze of an alarm uses the first duration,
+ * the second snooze the second, and so on, with the last tier repeating. The
+ * per-alarm count is reset when the alarm is stopped for good.
+ */
+public class SnoozePolicy {
+
+    private static final String PREFS_NAME = "TraderTimeSettings";
+    private static final String DURATIONS_KEY = "snooze_durations_minutes";
+    private static final String MAX_COUNT_KEY = "snooze_max_count";
+
+    // Snooze counts are state rather than settings, so they live apart
+    private static final String COUNTS_PREFS_NAME = "TraderTimeSnooze";
+
+    // Conventional alarm-clock snoozes, each a little longer than the last
+    public static final int[] DEFAULT_DURATIONS_MINUTES = {5, 10, 15};
+    public static final int DEFAULT_MAX_COUNT = 3;
+    public static final int MAX_DURATION_MINUTES = 24 * 60;
+    public static final int MAX_TIERS = 10;
+
+    public static int[] getDurationsMinutes(Context context) {
+        String stored = DirectBootStorage.prefs(context, PREFS_NAME).getString(DURATIONS_KEY, null);
+        if (stored == null || stored.isEmpty()) return DEFAULT_DURATIONS_MINUTES.clone();
+        String[] parts = stored.split(",");
+        int[] minutes = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) minutes[i] = Integer.parseInt(parts[i]);
+        } catch (NumberFormatException e) {
+            return DEFAULT_DURATIONS_MINUTES.clone();
+        }
+        return minutes;
+    }
+
+    // 0 disables snooze entirely
+    public static int getMaxCount(Context context) {
+        return DirectBootStorage.prefs(context, PREFS_NAME).getInt(MAX_COUNT_KEY, DEFAULT_MAX_COUNT);
+    }
+
+    // Empty or null durations restore the defaults
+    public static void set(Context context, int[] durationsMinutes, int maxCount) {
+        StringBuilder sb = new StringBuilder();
+        if (durationsMinutes != null) {
+            for (int i = 0; i < durationsMinutes.length && i < MAX_TIERS; i++) {
+                if (sb.length() > 0) sb.append(',');
+                sb.append(Math.max(1, Math.min(MAX_DURATION_MINUTES, durationsMinutes[i])));
+            }
+        }
+        SharedPreferences.Editor editor = DirectBootStorage.prefs(context, PREFS_NAME).edit();
+        if (sb.length() > 0) {
+            editor.putString(DURATIONS_KEY, sb.toString());
+        } else {
+            editor.remove(DURATIONS_KEY);
+        }
+        editor.putInt(MAX_COUNT_KEY, Math.max(0, maxCount)).apply();
+    }
+
+    // Duration of the snooze that follows `count` earlier snoozes
+    public static long durationMs(Context context, int count) {
+        int[] tiers = getDurationsMinutes(context);
+        return tiers[Math.min(count, tiers.length - 1)] * 60_000L;
+    }
+
+    public static int getCount(Context context, String baseAlarmId) {
+        return DirectBootStorage.prefs(context, COUNTS_PREFS_NAME).getInt(baseAlarmId, 0);
+    }
+
+    public static boolean canSnooze(Context context, String baseAlarmId) {
+        return getCount(context, baseAlarmId) < getMaxCount(context);
+    }
+
+    static void setCount(Context context, String baseAlarmId, int count) {
+        DirectBootStorage.prefs(context, COUNTS_PREFS_NAME).edit().putInt(baseAlarmId, count).apply();
+    }
+
+    static void resetCounts(Context context, Collection<String> baseAlarmIds) {
+        SharedPreferences.Editor editor = DirectBootStorage.prefs(context, COUNTS_PREFS_NAME).edit();
+        for (String id : baseAlarmIds) editor.remove(id);
+        editor.apply();
+    }
+}
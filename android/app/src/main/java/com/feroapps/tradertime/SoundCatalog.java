@@ -0,0 +1,186 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single source of truth for alarm sounds.
+ *
+ * Raw resources are bound at compile time through R.raw, so resolving a soundId
+ * is one hash lookup with no getIdentifier() call on the fire path.
+ * User-imported sounds are appended by publishing a new immutable snapshot, so
+ * readers never lock and lookups stay O(1) as the list grows.
+ */
+public class SoundCatalog {
+
+    private static final String TAG = "SoundCatalog";
+
+    public static final String DEFAULT_ID = "original";
+
+    private static final String PREFS_NAME = "TraderTimeSounds";
+    private static final String IMPORTED_KEY = "imported_sounds";
+    private static final String IMPORTED_PREFIX = "user_";
+
+    public static class Sound {
+        public final String id;
+        public final String name;
+        public final String description;
+        public final String resName;
+        public final int rawRes;
+        // SHA-256 of the imported source file, null for bundled sounds
+        public final String contentHash;
+
+        Sound(String id, String name, String description, String resName, int rawRes) {
+            this(id, name, description, resName, rawRes, null);
+        }
+
+        Sound(String id, String name, String description, String resName, int rawRes, String contentHash) {
+            this.id = id;
+            this.name = name;
+            this.description = description;
+            this.resName = resName;
+            this.rawRes = rawRes;
+            this.contentHash = contentHash;
+        }
+
+        public boolean isImported() {
+            return contentHash != null;
+        }
+    }
+
+    private static final Sound[] BUNDLED = new Sound[] {
+            new Sound("original", "Original", "Original app alert sound", "alert_original", R.raw.alert_original),
+            new Sound("classic", "Classic", "Standard notification tone", "alert_classic", R.raw.alert_classic),
+            new Sound("chime", "Chime", "Extended melodic chime", "alert_chime", R.raw.alert_chime),
+            new Sound("bell", "Bell", "Crisp bell sound", "alert_bell", R.raw.alert_bell),
+            new Sound("ping", "Ping", "Quick ping notification", "alert_ping", R.raw.alert_ping),
+            new Sound("tone", "Tone", "Classic alert tone", "alert_tone", R.raw.alert_tone)
+    };
+
+    private static final List<Sound> BUNDLED_LIST = Collections.unmodifiableList(Arrays.asList(BUNDLED));
+
+    private static class Snapshot {
+        final List<Sound> all;
+        final Map<String, Sound> byId;
+
+        Snapshot(List<Sound> sounds) {
+            Map<String, Sound> map = new HashMap<>();
+            for (Sound s : sounds) {
+                map.put(s.id, s);
+            }
+            this.all = Collections.unmodifiableList(new ArrayList<>(sounds));
+            this.byId = Collections.unmodifiableMap(map);
+        }
+    }
+
+    private static volatile Snapshot snapshot = new Snapshot(BUNDLED_LIST);
+    private static volatile boolean importedLoaded = false;
+
+    // Unknown or missing ids resolve to the default sound
+    public static Sound get(Context context, String soundId) {
+        Sound s = soundId != null ? snapshot(context).byId.get(soundId) : null;
+        return s != null ? s : BUNDLED[0];
+    }
+
+    public static List<Sound> all(Context context) {
+        return snapshot(context).all;
+    }
+
+    public static List<Sound> bundled() {
+        return BUNDLED_LIST;
+    }
+
+    public static String importedId(String contentHash) {
+        return IMPORTED_PREFIX + contentHash.substring(0, 16);
+    }
+
+    // Idempotent: importing the same content again returns the existing entry
+    static synchronized Sound registerImported(Context context, String contentHash, String name) {
+        Snapshot current = snapshot(context);
+        Sound existing = current.byId.get(importedId(contentHash));
+        if (existing != null) return existing;
+
+        List<Sound> sounds = new ArrayList<>(current.all);
+        Sound sound = new Sound(importedId(contentHash), name, "Imported sound", null, 0, contentHash);
+        sounds.add(sound);
+        persistImported(context, sounds);
+        snapshot = new Snapshot(sounds);
+        Log.i(TAG, "Registered imported sound " + sound.id + " (" + name + ")");
+        return sound;
+    }
+
+    static synchronized Sound removeImported(Context context, String soundId) {
+        Snapshot current = snapshot(context);
+        Sound removed = current.byId.get(soundId);
+        if (removed == null || !removed.isImported()) return null;
+
+        List<Sound> sounds = new ArrayList<>(current.all);
+        sounds.remove(removed);
+        persistImported(context, sounds);
+        snapshot = new Snapshot(sounds);
+        Log.i(TAG, "Removed imported sound " + soundId);
+        return removed;
+    }
+
+    // Imported sounds live in credential storage; before first unlock only bundled ones resolve
+    private static Snapshot snapshot(Context context) {
+        if (!importedLoaded && DirectBootStorage.isUserUnlocked(context)) loadImported(context);
+        return snapshot;
+    }
+
+    private static synchronized void loadImported(Context context) {
+        if (importedLoaded) return;
+
+        List<Sound> sounds = new ArrayList<>(BUNDLED_LIST);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String json = prefs.getString(IMPORTED_KEY, null);
+        if (json != null) {
+            try {
+                JSONArray arr = new JSONArray(json);
+                for (int i = 0; i < arr.length(); i++) {
+                    JSONObject obj = arr.getJSONObject(i);
+                    String hash = obj.getString("hash");
+                    sounds.add(new Sound(importedId(hash), obj.optString("name", "Imported sound"),
+                            "Imported sound", null, 0, hash));
+                }
+            } catch (JSONException e) {
+                Log.e(TAG, "Failed to parse imported sounds", e);
+            }
+        }
+
+        snapshot = new Snapshot(sounds);
+        importedLoaded = true;
+    }
+
+    private static void persistImported(Context context, List<Sound> sounds) {
+        JSONArray arr = new JSONArray();
+        try {
+            for (Sound s : sounds) {
+                if (!s.isImported()) continue;
+                JSONObject obj = new JSONObject();
+                obj.put("hash", s.contentHash);
+                obj.put("name", s.name);
+                arr.put(obj);
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Failed to serialize imported sounds", e);
+            return;
+        }
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(IMPORTED_KEY, arr.toString())
+                .apply();
+    }
+}
@@ -0,0 +1,127 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.media.MediaExtractor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Imports user audio as alarm sounds.
+ *
+ * The source is transcoded once into the PCM cache (mono, capped length) under a
+ * SHA-256 of its bytes, so the same file imported twice is stored once. Blocking,
+ * call off the main thread.
+ */
+public class SoundImporter {
+
+    private static final String TAG = "SoundImporter";
+
+    // An alarm loops anyway; longer sources only cost storage
+    private static final long MAX_IMPORT_DURATION_US = 60_000_000L;
+
+    // Imports and removals run one at a time, so two picks of the same file never decode
+    // into the same cache entry at once and a removal never lands in the middle of an import
+    private static final ExecutorService WORKER =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "sound-import"));
+
+    public static class Result {
+        public final SoundCatalog.Sound sound;
+        public final boolean deduplicated;
+
+        Result(SoundCatalog.Sound sound, boolean deduplicated) {
+            this.sound = sound;
+            this.deduplicated = deduplicated;
+        }
+    }
+
+    public static void executeAsync(Runnable task) {
+        WORKER.execute(task);
+    }
+
+    public static Result importSound(Context context, Uri uri, String name) throws IOException {
+        String hash = sha256(context, uri);
+        File target = cacheFile(context, hash);
+        boolean existed = target.exists();
+
+        if (!existed) {
+            MediaExtractor extractor = new MediaExtractor();
+            try {
+                extractor.setDataSource(context, uri, null);
+            } catch (IOException | RuntimeException e) {
+                extractor.release();
+                throw e;
+            }
+            PcmSoundCache.decode(extractor, target, true, MAX_IMPORT_DURATION_US);
+        }
+
+        if (name == null || name.trim().isEmpty()) name = displayName(context, uri);
+        SoundCatalog.Sound sound = SoundCatalog.registerImported(context, hash, name);
+        Log.i(TAG, "Imported " + uri + " as " + sound.id + (existed ? " (already cached)" : ""));
+        return new Result(sound, existed);
+    }
+
+    public static boolean removeSound(Context context, String soundId) {
+        SoundCatalog.Sound removed = SoundCatalog.removeImported(context, soundId);
+        if (removed == null) return false;
+
+        AlarmAudioEngine.evict(removed);
+        File file = cacheFile(context, removed.contentHash);
+        if (file.exists() && !file.delete()) {
+            Log.w(TAG, "Could not delete " + file);
+        }
+        return true;
+    }
+
+    static File cacheFile(Context context, String contentHash) {
+        return new File(PcmSoundCache.cacheDir(context), contentHash + ".pcm");
+    }
+
+    private static String sha256(Context context, Uri uri) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            if (in == null) throw new IOException("Cannot open " + uri);
+            byte[] buf = new byte[64 * 1024];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                digest.update(buf, 0, n);
+            }
+        }
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    private static String displayName(Context context, Uri uri) {
+        String name = null;
+        try (Cursor c = context.getContentResolver().query(
+                uri, new String[] { OpenableColumns.DISPLAY_NAME }, null, null, null)) {
+            if (c != null && c.moveToFirst()) name = c.getString(0);
+        } catch (Exception e) {
+            Log.w(TAG, "Could not query display name for " + uri, e);
+        }
+        if (name == null) name = uri.getLastPathSegment();
+        if (name == null) return "Imported sound";
+
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+}
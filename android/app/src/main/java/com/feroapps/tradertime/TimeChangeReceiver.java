@@ -0,0 +1,40 @@
+package com.feroapps.tradertime;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+/**
+ * Re-arms alarms whose next occurrence depends on the wall clock.
+ *
+ * Every schedule in the app is defined in UTC, so a timezone change moves no
+ * instant and needs no work. A clock or date change can: fixed sessions and
+ * weekday alarms are recomputed through the reschedule pipeline, while alarms
+ * armed for a fixed instant are left to AlarmManager.
+ */
+public class TimeChangeReceiver extends BroadcastReceiver {
+
+    private static final String TAG = "TimeChangeReceiver";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        String action = intent.getAction();
+        if (action == null) return;
+
+        switch (action) {
+            case Intent.ACTION_TIME_CHANGED:
+            // Only delivered to manifest receivers before Android 8; TIME_SET covers manual changes
+            case Intent.ACTION_DATE_CHANGED:
+                Log.i(TAG, action + " received - recomputing wall-clock alarms");
+                PendingResult pendingResult = goAsync();
+                AlarmRescheduler.runAsync(context, AlarmRescheduler.REASON_TIME_CHANGE, 0, pendingResult::finish);
+                break;
+            case Intent.ACTION_TIMEZONE_CHANGED:
+                Log.i(TAG, "Timezone changed - all alarms are UTC based, nothing to reschedule");
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -1,32 +1,57 @@
 package com.feroapps.tradertime;
 
+import android.app.Activity;
 import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Build;
 import android.util.Log;
 
+import androidx.activity.result.ActivityResult;
+import androidx.core.content.FileProvider;
+
+import com.getcapacitor.JSArray;
 import com.getcapacitor.JSObject;
 import com.getcapacitor.Plugin;
 import com.getcapacitor.PluginCall;
 import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.ActivityCallback;
 import com.getcapacitor.annotation.CapacitorPlugin;
 
-import org.json.JSONObject;
-import org.json.JSONException;
-
-import java.util.HashSet;
-import java.util.Set;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
 
 @CapacitorPlugin(name = "UserAlarm")
 public class UserAlarmPlugin extends Plugin {
 
     private static final String TAG = "UserAlarmPlugin";
-    private static final String PREFS_NAME = "TraderTimeAlarms";
-    private static final String ALARMS_KEY = "scheduled_alarms";
+
+    private static final String BACKUP_DIR = "backups";
+    private static final String BACKUP_FILE = "tradertime-alarms.ttb";
+
+    // Lets receivers and the sound service reach JS listeners while the bridge is alive
+    private final AlarmEvents.Sink eventSink = this::notifyListeners;
+
+    @Override
+    public void load() {
+        super.load();
+        AlarmAudioEngine.preloadBundled(getContext());
+        AlarmStoreCompactionJob.schedule(getContext());
+        AlarmEvents.setSink(eventSink);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        AlarmEvents.clearSink(eventSink);
+        super.handleOnDestroy();
+    }
 
     @PluginMethod
     public void scheduleAlarm(PluginCall call) {
@@ -36,6 +61,9 @@ public class UserAlarmPlugin extends Plugin {
         String label = call.getString("label");
         Long triggerTimeMs = call.getLong("triggerTimeMs");
         String soundId = call.getString("soundId", "original");
+        int priority = call.getInt("priority", 0);
+        String repeat = call.getString("repeat", AlarmRecord.REPEAT_NONE);
+        int repeatDays = call.getInt("repeatDays", 0);
 
         long now = System.currentTimeMillis();
 
@@ -45,6 +73,8 @@ public class UserAlarmPlugin extends Plugin {
         Log.i(TAG, "now (ms): " + now);
         Log.i(TAG, "delta (sec): " + ((triggerTimeMs != null) ? (triggerTimeMs - now) / 1000 : "null"));
         Log.i(TAG, "soundId: " + soundId);
+        Log.i(TAG, "priority: " + priority);
+        Log.i(TAG, "repeat: " + repeat + " (days " + Integer.toBinaryString(repeatDays) + ")");
         Log.i(TAG, "Build.VERSION.SDK_INT: " + Build.VERSION.SDK_INT);
 
         if (alarmId == null || triggerTimeMs == null) {
@@ -68,43 +98,24 @@ public class UserAlarmPlugin extends Plugin {
         try {
             Context context = getContext();
             AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            AlarmRecord record = new AlarmRecord(alarmId, label, triggerTimeMs, soundId, priority,
+                    repeat, repeatDays, 0);
 
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            intent.putExtra(AlarmReceiver.EXTRA_ALARM_ID, alarmId);
-            intent.putExtra(AlarmReceiver.EXTRA_ALARM_LABEL, label);
-            intent.putExtra(AlarmReceiver.EXTRA_SOUND_ID, soundId);
-
-            int requestCode = alarmId.hashCode();
-            Log.i(TAG, "requestCode (hashCode): " + requestCode);
+            boolean canScheduleExact = UserAlarmScheduler.canScheduleExact(alarmManager);
+            Log.i(TAG, "canScheduleExactAlarms: " + canScheduleExact);
 
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                requestCode,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-            );
+            // Stored first: the insert allocates the alarm's request code
+            AlarmStore.put(context, record);
+            Log.i(TAG, "Alarm saved to store");
 
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-                boolean canScheduleExact = alarmManager.canScheduleExactAlarms();
-                Log.i(TAG, "canScheduleExactAlarms: " + canScheduleExact);
-
-                if (canScheduleExact) {
-                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
-                    Log.i(TAG, "SUCCESS: Scheduled EXACT alarm: " + alarmId + " at " + triggerTimeMs + " (in " + ((triggerTimeMs - now) / 1000) + " sec)");
-                } else {
-                    alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
-                    Log.w(TAG, "WARNING: Scheduled INEXACT alarm (no exact permission): " + alarmId);
-                }
-            } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
-                Log.i(TAG, "SUCCESS: Scheduled EXACT alarm (M+): " + alarmId + " at " + triggerTimeMs);
+            UserAlarmScheduler.arm(context, alarmManager, record, canScheduleExact);
+            if (canScheduleExact) {
+                Log.i(TAG, "SUCCESS: Scheduled EXACT alarm: " + alarmId + " at " + triggerTimeMs + " (in " + ((triggerTimeMs - now) / 1000) + " sec)");
             } else {
-                alarmManager.setExact(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
-                Log.i(TAG, "SUCCESS: Scheduled EXACT alarm (pre-M): " + alarmId);
+                Log.w(TAG, "WARNING: Scheduled INEXACT alarm (no exact permission): " + alarmId);
             }
 
-            saveAlarmToPrefs(context, alarmId, label, triggerTimeMs, soundId);
-            Log.i(TAG, "Alarm saved to SharedPreferences");
+            AlarmEvents.nextDueChangedAsync(context);
 
             JSObject result = new JSObject();
             result.put("success", true);
@@ -125,6 +136,8 @@ public class UserAlarmPlugin extends Plugin {
     @PluginMethod
     public void cancelAlarm(PluginCall call) {
         String alarmId = call.getString("alarmId");
+        // Only a delete or disable ends the snooze chain; a cancel before re-arming keeps it
+        boolean dropSnooze = Boolean.TRUE.equals(call.getBoolean("dropSnooze", false));
 
         if (alarmId == null) {
             Log.e(TAG, "cancelAlarm: missing alarmId");
@@ -139,24 +152,15 @@ public class UserAlarmPlugin extends Plugin {
             Context context = getContext();
             AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
 
-            Intent intent = new Intent(context, AlarmReceiver.class);
-            int requestCode = alarmId.hashCode();
-            PendingIntent pendingIntent = PendingIntent.getBroadcast(
-                context,
-                requestCode,
-                intent,
-                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-            );
-
-            if (pendingIntent != null) {
-                alarmManager.cancel(pendingIntent);
-                pendingIntent.cancel();
-                Log.i(TAG, "Cancelled alarm: " + alarmId);
-            } else {
-                Log.w(TAG, "No pending intent found for alarm: " + alarmId);
-            }
-
-            removeAlarmFromPrefs(context, alarmId);
+            AlarmStore.remove(context, alarmId, record -> {
+                if (UserAlarmScheduler.cancel(context, alarmManager, record)) {
+                    Log.i(TAG, "Cancelled alarm: " + alarmId);
+                } else {
+                    Log.w(TAG, "No pending intent found for alarm: " + alarmId);
+                }
+            });
+            if (dropSnooze) AlarmSnoozer.cancel(context, alarmManager, alarmId);
+            AlarmEvents.nextDueChangedAsync(context);
 
             JSObject result = new JSObject();
             result.put("success", true);
@@ -177,32 +181,38 @@ public class UserAlarmPlugin extends Plugin {
         try {
             Context context = getContext();
 
-            String ringingId = AlarmSoundService.getCurrentAlarmId();
+            // Without alarmIds every ringing alarm is stopped
+            List<String> alarmIds = null;
+            JSArray idsArray = call.getArray("alarmIds");
+            if (idsArray != null) {
+                alarmIds = new ArrayList<>();
+                for (int i = 0; i < idsArray.length(); i++) {
+                    alarmIds.add(idsArray.getString(i));
+                }
+            }
+
+            List<String> stoppedIds = new ArrayList<>();
+            for (ActiveAlarmQueue.ActiveAlarm alarm : AlarmSoundService.getActiveAlarms()) {
+                if (alarmIds == null || alarmIds.contains(alarm.alarmId)) stoppedIds.add(alarm.alarmId);
+            }
 
             Intent stopIntent = new Intent(context, AlarmSoundService.class);
             stopIntent.setAction(AlarmSoundService.ACTION_STOP);
+            if (alarmIds != null) {
+                stopIntent.putExtra(AlarmSoundService.EXTRA_ALARM_IDS, alarmIds.toArray(new String[0]));
+            }
             context.startService(stopIntent);
 
-            if (ringingId != null) {
-                AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-                Intent intent = new Intent(context, AlarmReceiver.class);
-                int requestCode = ringingId.hashCode();
-                PendingIntent pi = PendingIntent.getBroadcast(
-                    context,
-                    requestCode,
-                    intent,
-                    PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
-                );
-                if (pi != null) {
-                    alarmManager.cancel(pi);
-                    pi.cancel();
-                }
+            AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+            for (String ringingId : stoppedIds) {
+                UserAlarmScheduler.cancel(context, alarmManager, ringingId);
             }
 
-            Log.i(TAG, "Stop current alarm requested");
+            Log.i(TAG, "Stop requested for " + (alarmIds == null ? "all alarms" : alarmIds.toString()));
 
             JSObject result = new JSObject();
             result.put("success", true);
+            result.put("stoppedIds", new JSArray(stoppedIds));
             call.resolve(result);
 
         } catch (Exception e) {
@@ -214,6 +224,95 @@ public class UserAlarmPlugin extends Plugin {
         }
     }
 
+    // Same path as the notification's snooze action; the re-arm happens natively
+    @PluginMethod
+    public void snoozeCurrentAlarm(PluginCall call) {
+        try {
+            Context context = getContext();
+            Intent snoozeIntent = new Intent(context, AlarmSoundService.class);
+            snoozeIntent.setAction(AlarmSoundService.ACTION_SNOOZE);
+            JSArray idsArray = call.getArray("alarmIds");
+            if (idsArray != null) {
+                String[] alarmIds = new String[idsArray.length()];
+                for (int i = 0; i < alarmIds.length; i++) alarmIds[i] = idsArray.getString(i);
+                snoozeIntent.putExtra(AlarmSoundService.EXTRA_ALARM_IDS, alarmIds);
+            }
+            context.startService(snoozeIntent);
+
+            JSObject result = new JSObject();
+            result.put("success", true);
+            call.resolve(result);
+
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to snooze current alarm", e);
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", e.getMessage());
+            call.resolve(result);
+        }
+    }
+
+    @PluginMethod
+    public void getNextDue(PluginCall call) {
+        Context context = getContext();
+        AlarmStore.executeAsync(() -> {
+            AlarmEvents.NextDue next = AlarmEvents.nextDue(context, System.currentTimeMillis());
+            JSObject result = new JSObject();
+            if (next != null) result.put("next", next.toJson());
+            call.resolve(result);
+        });
+    }
+
+    // Stored alarms by label or by trigger time range, answered from the store's indexes
+    @PluginMethod
+    public void queryAlarms(PluginCall call) {
+        String label = call.getString("label");
+        long fromMs = call.getLong("fromMs", 0L);
+        long toMs = call.getLong("toMs", Long.MAX_VALUE);
+        int limit = call.getInt("limit", 1000);
+        Context context = getContext();
+        AlarmStore.executeAsync(() -> {
+            List<AlarmRecord> records = label != null
+                    ? AlarmStore.findByLabel(context, label, limit)
+                    : AlarmStore.range(context, fromMs, toMs, limit);
+            JSArray out = new JSArray();
+            for (AlarmRecord record : records) {
+                JSObject item = new JSObject();
+                item.put("alarmId", record.alarmId);
+                item.put("label", record.label);
+                item.put("triggerTimeMs", record.triggerTimeMs);
+                item.put("soundId", record.soundId);
+                item.put("priority", record.priority);
+                item.put("repeat", record.repeat);
+                item.put("repeatDays", record.repeatDays);
+                item.put("firedAtMs", record.firedAtMs);
+                out.put(item);
+            }
+
+            JSObject result = new JSObject();
+            result.put("alarms", out);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void getActiveAlarms(PluginCall call) {
+        JSArray alarms = new JSArray();
+        for (ActiveAlarmQueue.ActiveAlarm alarm : AlarmSoundService.getActiveAlarms()) {
+            JSObject obj = new JSObject();
+            obj.put("alarmId", alarm.alarmId);
+            obj.put("label", alarm.label);
+            obj.put("soundId", alarm.soundId);
+            obj.put("priority", alarm.priority);
+            obj.put("startedAtMs", alarm.startedAtMs);
+            alarms.put(obj);
+        }
+
+        JSObject result = new JSObject();
+        result.put("alarms", alarms);
+        call.resolve(result);
+    }
+
     @PluginMethod
     public void canScheduleExactAlarms(PluginCall call) {
         boolean canSchedule = true;
@@ -273,55 +372,404 @@ public class UserAlarmPlugin extends Plugin {
         }
     }
 
-    private void saveAlarmToPrefs(Context context, String alarmId, String label, long triggerTimeMs, String soundId) {
-        try {
-            SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            Set<String> alarmSet = new HashSet<>(prefs.getStringSet(ALARMS_KEY, new HashSet<>()));
-
-            JSONObject alarmJson = new JSONObject();
-            alarmJson.put("alarmId", alarmId);
-            alarmJson.put("label", label != null ? label : "Trader Time Alert");
-            alarmJson.put("triggerTimeMs", triggerTimeMs);
-            alarmJson.put("soundId", soundId != null ? soundId : "original");
-
-            alarmSet.removeIf(s -> {
-                try {
-                    JSONObject obj = new JSONObject(s);
-                    return alarmId.equals(obj.getString("alarmId"));
-                } catch (JSONException e) {
-                    return false;
+    @PluginMethod
+    public void getStoreDiagnostics(PluginCall call) {
+        AlarmStoreCompactionJob.Stats stats = AlarmStoreCompactionJob.getStats(getContext());
+
+        JSObject result = new JSObject();
+        result.put("liveEntries", stats.liveEntries);
+        result.put("liveBytes", stats.liveBytes);
+        result.put("lastCompactionMs", stats.lastRunMs);
+        result.put("lastCompactionReason", stats.lastReason);
+        result.put("lastRemoved", stats.lastRemoved);
+        result.put("lastReclaimedBytes", stats.lastReclaimedBytes);
+        result.put("totalReclaimedBytes", stats.totalReclaimedBytes);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void compactStore(PluginCall call) {
+        Context context = getContext();
+        AlarmStore.executeAsync(() -> {
+            AlarmStore.Compaction c = AlarmStoreCompactionJob.compact(context, "manual");
+            JSObject result = new JSObject();
+            result.put("success", true);
+            result.put("removed", c.removed);
+            result.put("reclaimedBytes", c.reclaimedBytes);
+            result.put("liveEntries", c.liveEntries);
+            result.put("liveBytes", c.liveBytes);
+            call.resolve(result);
+        });
+    }
+
+    // Writes to the cache dir; the returned content uri can be handed to a share sheet
+    @PluginMethod
+    public void exportAlarms(PluginCall call) {
+        String clientData = call.getString("clientData");
+        boolean share = Boolean.TRUE.equals(call.getBoolean("share", false));
+        Context context = getContext();
+        AlarmStore.executeAsync(() -> {
+            try {
+                File dir = new File(context.getCacheDir(), BACKUP_DIR);
+                if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+                File file = new File(dir, BACKUP_FILE);
+                AlarmBackup.ExportResult exported;
+                try (OutputStream out = new FileOutputStream(file)) {
+                    exported = AlarmBackup.export(context, out, clientData);
                 }
-            });
+                Uri uri = FileProvider.getUriForFile(context, context.getPackageName() + ".fileprovider", file);
+                if (share) {
+                    Intent send = new Intent(Intent.ACTION_SEND);
+                    send.setType("application/octet-stream");
+                    send.putExtra(Intent.EXTRA_STREAM, uri);
+                    send.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+                    Intent chooser = Intent.createChooser(send, "Export alarms");
+                    chooser.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+                    context.startActivity(chooser);
+                }
+
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("path", file.getAbsolutePath());
+                result.put("uri", uri.toString());
+                result.put("alarms", exported.alarms);
+                result.put("bytes", exported.bytes);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to export alarms", e);
+                JSObject result = new JSObject();
+                result.put("success", false);
+                result.put("error", e.getMessage());
+                call.resolve(result);
+            }
+        });
+    }
+
+    // Runs on the reschedule worker, since it ends with a full arming pass
+    @PluginMethod
+    public void importAlarms(PluginCall call) {
+        String uri = call.getString("uri");
+        String path = call.getString("path");
+        boolean replace = Boolean.TRUE.equals(call.getBoolean("replace", false));
+
+        if (uri == null && path == null) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "Missing uri or path");
+            call.resolve(result);
+            return;
+        }
 
-            alarmSet.add(alarmJson.toString());
+        importBackupInBackground(call, uri != null ? Uri.parse(uri) : null, path, replace);
+    }
 
-            prefs.edit().putStringSet(ALARMS_KEY, alarmSet).apply();
-            Log.i(TAG, "Saved alarm to prefs: " + alarmId);
+    @PluginMethod
+    public void pickBackup(PluginCall call) {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        startActivityForResult(call, intent, "pickBackupResult");
+    }
 
-        } catch (JSONException e) {
-            Log.e(TAG, "Failed to save alarm to prefs", e);
+    @ActivityCallback
+    private void pickBackupResult(PluginCall call, ActivityResult activityResult) {
+        if (call == null) return;
+
+        Intent data = activityResult.getData();
+        Uri uri = data != null ? data.getData() : null;
+        if (activityResult.getResultCode() != Activity.RESULT_OK || uri == null) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "No backup selected");
+            call.resolve(result);
+            return;
         }
+
+        importBackupInBackground(call, uri, null, Boolean.TRUE.equals(call.getBoolean("replace", false)));
     }
 
-    private void removeAlarmFromPrefs(Context context, String alarmId) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        Set<String> alarmSet = new HashSet<>(prefs.getStringSet(ALARMS_KEY, new HashSet<>()));
+    private void importBackupInBackground(PluginCall call, Uri uri, String path, boolean replace) {
+        Context context = getContext();
+        AlarmRescheduler.executeAsync(() -> {
+            try (InputStream in = uri != null
+                    ? context.getContentResolver().openInputStream(uri)
+                    : new FileInputStream(path)) {
+                if (in == null) throw new IOException("Cannot open " + uri);
+                AlarmBackup.ImportResult imported = AlarmBackup.importFrom(context, in, replace);
+
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("alarms", imported.alarms);
+                result.put("removed", imported.removed);
+                result.put("settingsRestored", imported.settingsRestored);
+                if (imported.clientData != null) result.put("clientData", imported.clientData);
+                result.put("armed", imported.arming.armed);
+                result.put("failed", imported.arming.failed);
+                result.put("elapsedMs", imported.elapsedMs);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Failed to import alarms", e);
+                JSObject result = new JSObject();
+                result.put("success", false);
+                result.put("error", e.getMessage());
+                call.resolve(result);
+            }
+        });
+    }
 
-        alarmSet.removeIf(s -> {
+    @PluginMethod
+    public void getWakeupLedger(PluginCall call) {
+        int days = Math.max(1, Math.min(call.getInt("days", 7), 90));
+        Context context = getContext();
+        AlarmStore.executeAsync(() -> {
+            JSArray out = new JSArray();
+            for (WakeupLedger.DayCount day : WakeupLedger.dailyCounts(context, days, System.currentTimeMillis())) {
+                JSObject bySource = new JSObject();
+                for (int i = 0; i < day.bySource.length; i++) {
+                    bySource.put(WakeupLedger.SOURCE_NAMES[i], day.bySource[i]);
+                }
+                JSObject item = new JSObject();
+                item.put("dayStartMs", day.dayStartMs);
+                item.put("total", day.total);
+                item.put("bySource", bySource);
+                out.put(item);
+            }
+
+            JSObject result = new JSObject();
+            result.put("days", out);
+            result.put("capacity", WakeupLedger.CAPACITY);
+            call.resolve(result);
+        });
+    }
+
+    @PluginMethod
+    public void getAlarmScreenTiming(PluginCall call) {
+        AlarmActivity.FirstFrameStats stats = AlarmActivity.getFirstFrameStats(getContext());
+
+        JSObject result = new JSObject();
+        result.put("lastFirstFrameMs", stats.lastMs);
+        result.put("averageFirstFrameMs", stats.averageMs);
+        result.put("samples", stats.samples);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getWakeLockStats(PluginCall call) {
+        JSArray locks = new JSArray();
+        for (WakeLockManager.Stats stats : WakeLockManager.getStats()) {
+            JSObject item = new JSObject();
+            item.put("tag", stats.tag);
+            item.put("acquireCount", stats.acquireCount);
+            item.put("timeoutCount", stats.timeoutCount);
+            item.put("totalHeldMs", stats.totalHeldMs);
+            item.put("maxHeldMs", stats.maxHeldMs);
+            item.put("held", stats.held);
+            locks.put(item);
+        }
+
+        JSObject result = new JSObject();
+        result.put("locks", locks);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getCatchUpPolicy(PluginCall call) {
+        JSObject result = new JSObject();
+        result.put("windowMinutes", CatchUpPolicy.getWindowMinutes(getContext()));
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void setCatchUpPolicy(PluginCall call) {
+        Integer windowMinutes = call.getInt("windowMinutes");
+
+        if (windowMinutes == null) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "Missing windowMinutes");
+            call.resolve(result);
+            return;
+        }
+
+        CatchUpPolicy.setWindowMinutes(getContext(), windowMinutes);
+
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("windowMinutes", CatchUpPolicy.getWindowMinutes(getContext()));
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void getSnoozePolicy(PluginCall call) {
+        call.resolve(snoozePolicyJson());
+    }
+
+    @PluginMethod
+    public void setSnoozePolicy(PluginCall call) {
+        Context context = getContext();
+        int[] durations = SnoozePolicy.getDurationsMinutes(context);
+        JSArray durationsArray = call.getArray("durationsMinutes");
+        if (durationsArray != null) {
             try {
-                JSONObject obj = new JSONObject(s);
-                return alarmId.equals(obj.getString("alarmId"));
-            } catch (JSONException e) {
-                return false;
+                durations = new int[durationsArray.length()];
+                for (int i = 0; i < durations.length; i++) durations[i] = durationsArray.getInt(i);
+            } catch (Exception e) {
+                JSObject result = new JSObject();
+                result.put("success", false);
+                result.put("error", "durationsMinutes must be numbers");
+                call.resolve(result);
+                return;
             }
+        }
+        int maxCount = call.getInt("maxCount", SnoozePolicy.getMaxCount(context));
+
+        SnoozePolicy.set(context, durations, maxCount);
+
+        JSObject result = snoozePolicyJson();
+        result.put("success", true);
+        call.resolve(result);
+    }
+
+    private JSObject snoozePolicyJson() {
+        JSArray durations = new JSArray();
+        for (int minutes : SnoozePolicy.getDurationsMinutes(getContext())) durations.put(minutes);
+        JSObject result = new JSObject();
+        result.put("durationsMinutes", durations);
+        result.put("maxCount", SnoozePolicy.getMaxCount(getContext()));
+        return result;
+    }
+
+    @PluginMethod
+    public void getSoundCatalog(PluginCall call) {
+        JSArray sounds = new JSArray();
+        for (SoundCatalog.Sound s : SoundCatalog.all(getContext())) {
+            JSObject sound = new JSObject();
+            sound.put("id", s.id);
+            sound.put("name", s.name);
+            sound.put("description", s.description);
+            sound.put("resName", s.resName);
+            sound.put("imported", s.isImported());
+            sounds.put(sound);
+        }
+
+        JSObject result = new JSObject();
+        result.put("sounds", sounds);
+        result.put("defaultId", SoundCatalog.DEFAULT_ID);
+        call.resolve(result);
+    }
+
+    @PluginMethod
+    public void pickSound(PluginCall call) {
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("audio/*");
+        startActivityForResult(call, intent, "pickSoundResult");
+    }
+
+    @ActivityCallback
+    private void pickSoundResult(PluginCall call, ActivityResult activityResult) {
+        if (call == null) return;
+
+        Intent data = activityResult.getData();
+        Uri uri = data != null ? data.getData() : null;
+        if (activityResult.getResultCode() != Activity.RESULT_OK || uri == null) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "No sound selected");
+            call.resolve(result);
+            return;
+        }
+
+        importSoundInBackground(call, uri, call.getString("name"));
+    }
+
+    @PluginMethod
+    public void importSound(PluginCall call) {
+        String uri = call.getString("uri");
+
+        if (uri == null || uri.isEmpty()) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "Missing uri");
+            call.resolve(result);
+            return;
+        }
+
+        importSoundInBackground(call, Uri.parse(uri), call.getString("name"));
+    }
+
+    @PluginMethod
+    public void removeSound(PluginCall call) {
+        String soundId = call.getString("soundId");
+        Context context = getContext();
+        SoundImporter.executeAsync(() -> {
+            boolean removed = soundId != null && SoundImporter.removeSound(context, soundId);
+
+            JSObject result = new JSObject();
+            result.put("success", removed);
+            if (!removed) result.put("error", "Not an imported sound: " + soundId);
+            call.resolve(result);
         });
+    }
 
-        prefs.edit().putStringSet(ALARMS_KEY, alarmSet).apply();
-        Log.i(TAG, "Removed alarm from prefs: " + alarmId);
+    private void importSoundInBackground(PluginCall call, Uri uri, String name) {
+        Context context = getContext();
+        SoundImporter.executeAsync(() -> {
+            try {
+                SoundImporter.Result r = SoundImporter.importSound(context, uri, name);
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("soundId", r.sound.id);
+                result.put("name", r.sound.name);
+                result.put("deduplicated", r.deduplicated);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Sound import failed: " + uri, e);
+                JSObject result = new JSObject();
+                result.put("success", false);
+                result.put("error", e.getMessage());
+                call.resolve(result);
+            }
+        });
     }
 
-    public static Set<String> getStoredAlarms(Context context) {
-        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-        return prefs.getStringSet(ALARMS_KEY, new HashSet<>());
+    @PluginMethod
+    public void benchmarkAlarmAudio(PluginCall call) {
+        SoundCatalog.Sound sound = SoundCatalog.get(getContext(), call.getString("soundId"));
+        int iterations = call.getInt("iterations", 10);
+
+        if (AlarmSoundService.getCurrentAlarmId() != null) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "An alarm is ringing");
+            call.resolve(result);
+            return;
+        }
+
+        Context context = getContext();
+        boolean started = AlarmAudioBenchmark.executeAsync(() -> {
+            try {
+                AlarmAudioBenchmark.Result r = AlarmAudioBenchmark.run(context, sound, iterations);
+                JSObject result = new JSObject();
+                result.put("success", true);
+                result.put("soundId", r.soundId);
+                result.put("iterations", r.iterations);
+                result.put("mediaPlayerMedianMs", r.mediaPlayerMedianUs / 1000.0);
+                result.put("engineMedianMs", r.engineMedianUs / 1000.0);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "benchmarkAlarmAudio failed", e);
+                JSObject result = new JSObject();
+                result.put("success", false);
+                result.put("error", e.getMessage());
+                call.resolve(result);
+            }
+        });
+        if (!started) {
+            JSObject result = new JSObject();
+            result.put("success", false);
+            result.put("error", "A benchmark is already running");
+            call.resolve(result);
+        }
     }
 }
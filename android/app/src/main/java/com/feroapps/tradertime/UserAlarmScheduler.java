@@ -0,0 +1,130 @@
+package com.feroapps.tradertime;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+
+import java.util.List;
+
+/**
+ * AlarmManager plumbing for user alarms, shared by the plugin and the
+ * reschedule pipeline so both arm exactly the same PendingIntent.
+ *
+ * Each alarm's PendingIntent uses the request code AlarmDatabase allocated for
+ * it, so two ids can never share a registration. Older versions keyed them by
+ * the id's hashCode; the first reschedule pass after the update cancels those
+ * and re-arms the alarms under their allocated codes.
+ */
+public class UserAlarmScheduler {
+
+    private static final String TAG = "UserAlarmScheduler";
+
+    private static final String PREFS_NAME = "TraderTimeSettings";
+    private static final String KEY_LEGACY_CODES_CLEARED = "user_alarm_legacy_codes_cleared";
+
+    public static boolean canScheduleExact(AlarmManager alarmManager) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms();
+    }
+
+    // Returns true if the alarm was armed exactly. The record must already be stored.
+    public static boolean arm(Context context, AlarmManager alarmManager, AlarmRecord record, boolean exact) {
+        int requestCode = record.requestCode != 0
+                ? record.requestCode
+                : AlarmStore.requestCode(context, record.alarmId);
+        if (requestCode == 0) {
+            Log.w(TAG, "Not arming unstored alarm " + record.alarmId);
+            return false;
+        }
+        PendingIntent pendingIntent = buildPendingIntent(context, record, requestCode);
+        return setAlarm(alarmManager, record.triggerTimeMs, pendingIntent, exact);
+    }
+
+    // Shared with fixed sessions so both honour the exact alarm permission the same way
+    static boolean setAlarm(AlarmManager alarmManager, long triggerTimeMs, PendingIntent pendingIntent, boolean exact) {
+        if (exact) {
+            alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
+        } else {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, triggerTimeMs, pendingIntent);
+        }
+        return exact;
+    }
+
+    // Call before removing the alarm from the store, which frees its request code
+    public static boolean cancel(Context context, AlarmManager alarmManager, String alarmId) {
+        return cancel(context, alarmManager, alarmId, AlarmStore.requestCode(context, alarmId));
+    }
+
+    public static boolean cancel(Context context, AlarmManager alarmManager, AlarmRecord record) {
+        return cancel(context, alarmManager, record.alarmId, record.requestCode != 0
+                ? record.requestCode
+                : AlarmStore.requestCode(context, record.alarmId));
+    }
+
+    private static boolean cancel(Context context, AlarmManager alarmManager, String alarmId, int requestCode) {
+        boolean cancelled = requestCode != 0
+                && cancelRegistration(context, alarmManager, requestCode, AlarmReceiver.ACTION_FIRE);
+        // Until the legacy pass has run, a cancel before re-arming must drop the old registration too
+        if (!legacyRegistrationsCleared(context)) cancelled |= cancelLegacy(context, alarmManager, alarmId);
+        return cancelled;
+    }
+
+    static boolean legacyRegistrationsCleared(Context context) {
+        return DirectBootStorage.prefs(context, PREFS_NAME).getBoolean(KEY_LEGACY_CODES_CLEARED, false);
+    }
+
+    // Cancels the hashCode registrations of older versions. The caller re-arms the
+    // alarms and then calls markLegacyRegistrationsCleared(). Returns the number cancelled.
+    static int cancelLegacyRegistrations(Context context, AlarmManager alarmManager, List<AlarmRecord> records) {
+        int cancelled = 0;
+        for (AlarmRecord record : records) {
+            if (cancelLegacy(context, alarmManager, record.alarmId)) cancelled++;
+        }
+        Log.i(TAG, "Cancelled " + cancelled + " legacy alarm registration(s)");
+        return cancelled;
+    }
+
+    static void markLegacyRegistrationsCleared(Context context) {
+        DirectBootStorage.prefs(context, PREFS_NAME).edit().putBoolean(KEY_LEGACY_CODES_CLEARED, true).apply();
+    }
+
+    // Legacy registrations: keyed by the id's hashCode, with no action
+    private static boolean cancelLegacy(Context context, AlarmManager alarmManager, String alarmId) {
+        return cancelRegistration(context, alarmManager, alarmId.hashCode(), null);
+    }
+
+    private static boolean cancelRegistration(Context context, AlarmManager alarmManager, int requestCode,
+                                              String action) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.setAction(action);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(
+                context,
+                requestCode,
+                intent,
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE
+        );
+        if (pendingIntent == null) return false;
+
+        alarmManager.cancel(pendingIntent);
+        pendingIntent.cancel();
+        return true;
+    }
+
+    private static PendingIntent buildPendingIntent(Context context, AlarmRecord record, int requestCode) {
+        Intent intent = new Intent(context, AlarmReceiver.class);
+        intent.setAction(AlarmReceiver.ACTION_FIRE);
+        intent.putExtra(AlarmReceiver.EXTRA_ALARM_ID, record.alarmId);
+        intent.putExtra(AlarmReceiver.EXTRA_ALARM_LABEL, record.label);
+        intent.putExtra(AlarmReceiver.EXTRA_SOUND_ID, record.soundId);
+        intent.putExtra(AlarmReceiver.EXTRA_PRIORITY, record.priority);
+
+        return PendingIntent.getBroadcast(
+                context,
+                requestCode,
+                intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+        );
+    }
+}
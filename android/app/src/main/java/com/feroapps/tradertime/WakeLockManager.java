@@ -0,0 +1,165 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hands out reference-counted wake locks by tag and keeps per-tag hold times.
+ *
+ * Every tag maps to one underlying lock that is held while at least one Handle is
+ * open. Each acquire carries a timeout so a missed release can never hold the
+ * device awake for longer than that.
+ */
+public class WakeLockManager {
+
+    private static final String TAG = "WakeLockManager";
+
+    private static final String TAG_PREFIX = "tradertime:";
+
+    public static class Stats {
+        public String tag;
+        public int acquireCount;
+        public int timeoutCount;
+        public long totalHeldMs;
+        public long maxHeldMs;
+        public boolean held;
+    }
+
+    private static class Slot {
+        final PowerManager.WakeLock wakeLock;
+        final Stats stats = new Stats();
+        int refs;
+        // Bumped whenever the lock is fully released, so stale handles are ignored
+        int generation;
+        long heldSinceMs;
+        long deadlineMs;
+
+        Slot(PowerManager.WakeLock wakeLock, String tag) {
+            this.wakeLock = wakeLock;
+            stats.tag = tag;
+        }
+    }
+
+    private static final Map<String, Slot> SLOTS = new HashMap<>();
+
+    /** One reference on a tagged lock; release() is idempotent. */
+    public static class Handle {
+        private final String tag;
+        private final int generation;
+        private boolean released;
+
+        private Handle(String tag, int generation) {
+            this.tag = tag;
+            this.generation = generation;
+        }
+
+        public void release() {
+            synchronized (SLOTS) {
+                if (released) return;
+                released = true;
+                WakeLockManager.release(tag, generation);
+            }
+        }
+    }
+
+    // Returns null if the power service is unavailable
+    public static Handle acquire(Context context, String tag, int levelAndFlags, long timeoutMs) {
+        synchronized (SLOTS) {
+            Slot slot = SLOTS.get(tag);
+            if (slot == null) {
+                PowerManager pm = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+                if (pm == null) return null;
+                PowerManager.WakeLock wl = pm.newWakeLock(levelAndFlags, TAG_PREFIX + tag);
+                // Counting is done here so hold time can be measured per session
+                wl.setReferenceCounted(false);
+                slot = new Slot(wl, tag);
+                SLOTS.put(tag, slot);
+            }
+
+            long now = SystemClock.elapsedRealtime();
+            expireIfTimedOut(slot, now);
+            if (slot.refs == 0) slot.heldSinceMs = now;
+            slot.refs++;
+            slot.stats.acquireCount++;
+
+            // Re-acquiring extends the timeout to cover the newest holder
+            long deadline = now + timeoutMs;
+            if (deadline > slot.deadlineMs || slot.refs == 1) {
+                slot.deadlineMs = deadline;
+                slot.wakeLock.acquire(timeoutMs);
+            }
+            slot.stats.held = true;
+            Log.i(TAG, "Acquired " + tag + " (refs=" + slot.refs + ", timeout " + timeoutMs + " ms)");
+            return new Handle(tag, slot.generation);
+        }
+    }
+
+    // Releases every open reference of a tag, e.g. when its session ends
+    public static void releaseAll(String tag) {
+        synchronized (SLOTS) {
+            Slot slot = SLOTS.get(tag);
+            if (slot == null || slot.refs == 0) return;
+            slot.refs = 1;
+            release(tag, slot.generation);
+        }
+    }
+
+    public static List<Stats> getStats() {
+        synchronized (SLOTS) {
+            long now = SystemClock.elapsedRealtime();
+            List<Stats> out = new ArrayList<>(SLOTS.size());
+            for (Slot slot : SLOTS.values()) {
+                expireIfTimedOut(slot, now);
+                Stats s = new Stats();
+                s.tag = slot.stats.tag;
+                s.acquireCount = slot.stats.acquireCount;
+                s.timeoutCount = slot.stats.timeoutCount;
+                s.totalHeldMs = slot.stats.totalHeldMs;
+                s.maxHeldMs = slot.stats.maxHeldMs;
+                s.held = slot.refs > 0;
+                // Include the running hold so a stuck lock shows up before it is released
+                if (s.held) s.totalHeldMs += now - slot.heldSinceMs;
+                out.add(s);
+            }
+            return out;
+        }
+    }
+
+    private static void release(String tag, int generation) {
+        Slot slot = SLOTS.get(tag);
+        if (slot == null || slot.refs == 0 || slot.generation != generation) return;
+
+        long now = SystemClock.elapsedRealtime();
+        if (expireIfTimedOut(slot, now)) return;
+        if (--slot.refs > 0) return;
+
+        if (slot.wakeLock.isHeld()) slot.wakeLock.release();
+        slot.generation++;
+        recordHold(slot, now - slot.heldSinceMs);
+        Log.i(TAG, "Released " + tag + " after " + (now - slot.heldSinceMs) + " ms");
+    }
+
+    // The platform drops a lock at its timeout; account for it as if released then
+    private static boolean expireIfTimedOut(Slot slot, long now) {
+        if (slot.refs == 0 || now < slot.deadlineMs) return false;
+        slot.refs = 0;
+        slot.generation++;
+        slot.stats.timeoutCount++;
+        recordHold(slot, slot.deadlineMs - slot.heldSinceMs);
+        Log.w(TAG, "Wake lock " + slot.stats.tag + " was held until its timeout");
+        return true;
+    }
+
+    private static void recordHold(Slot slot, long heldMs) {
+        slot.stats.held = false;
+        slot.stats.totalHeldMs += heldMs;
+        if (heldMs > slot.stats.maxHeldMs) slot.stats.maxHeldMs = heldMs;
+    }
+}
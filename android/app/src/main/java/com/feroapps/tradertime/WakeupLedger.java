@@ -0,0 +1,176 @@
+package com.feroapps.tradertime;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.provider.Settings;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fixed-size ring of every device wakeup this app caused.
+ *
+ * The file is a small header followed by CAPACITY records of (timestamp, source),
+ * written in place, so recording costs one short positional write and the file
+ * never grows. It lives in device-protected storage because alarms fire before
+ * first unlock too.
+ */
+public class WakeupLedger {
+
+    private static final String TAG = "WakeupLedger";
+
+    private static final String FILE_NAME = "wakeup_ledger.bin";
+    private static final int MAGIC = 0x5454574C; // "TTWL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16; // magic, version, next slot, count
+    private static final int RECORD_BYTES = 12; // timestamp ms, source
+    static final int CAPACITY = 4096;
+
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private static final String PREFS_NAME = "TraderTimeDiagnostics";
+    private static final String KEY_LAST_BOOT_COUNT = "wakeup_ledger_last_boot_count";
+
+    public static final int SOURCE_USER_ALARM = 0;
+    public static final int SOURCE_FIXED_SESSION = 1;
+    public static final int SOURCE_BOOT = 2;
+    public static final int SOURCE_TIME_CHANGE = 3;
+    // Continuation of a reschedule pass that ran out of time
+    public static final int SOURCE_REARM = 4;
+    static final String[] SOURCE_NAMES = {"user_alarm", "fixed_session", "boot", "time_change", "rearm"};
+
+    private static final ExecutorService WRITER =
+            Executors.newSingleThreadExecutor(r -> new Thread(r, "wakeup-ledger"));
+
+    private static final Object LOCK = new Object();
+
+    /** Wakeups during one UTC day. */
+    public static class DayCount {
+        public final long dayStartMs;
+        public final int[] bySource = new int[SOURCE_NAMES.length];
+        public int total;
+
+        DayCount(long dayStartMs) {
+            this.dayStartMs = dayStartMs;
+        }
+    }
+
+    // onDone runs on the writer thread, e.g. PendingResult::finish
+    public static void recordAsync(Context context, int source, Runnable onDone) {
+        Context appContext = context.getApplicationContext();
+        long timeMs = System.currentTimeMillis();
+        WRITER.execute(() -> {
+            try {
+                record(appContext, source, timeMs);
+            } finally {
+                if (onDone != null) onDone.run();
+            }
+        });
+    }
+
+    // Blocking; callers are already off the main thread
+    public static void record(Context context, int source, long timeMs) {
+        synchronized (LOCK) {
+            try (RandomAccessFile raf = new RandomAccessFile(file(context), "rw")) {
+                FileChannel channel = raf.getChannel();
+                int[] header = readHeader(channel);
+                int next = header[0];
+                int count = header[1];
+
+                ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                record.putLong(timeMs).putInt(source).flip();
+                channel.write(record, HEADER_BYTES + (long) next * RECORD_BYTES);
+
+                writeHeader(channel, (next + 1) % CAPACITY, Math.min(count + 1, CAPACITY));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not record wakeup", e);
+            }
+        }
+    }
+
+    // Both boot broadcasts run a reschedule pass, so a boot is only recorded by the first
+    // pass after Settings.Global.BOOT_COUNT changes. Returns false if it was already recorded.
+    public static boolean recordBoot(Context context, long timeMs) {
+        int bootCount = Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, -1);
+        synchronized (LOCK) {
+            SharedPreferences prefs = DirectBootStorage.prefs(context, PREFS_NAME);
+            if (bootCount >= 0 && prefs.getInt(KEY_LAST_BOOT_COUNT, -1) == bootCount) return false;
+            record(context, SOURCE_BOOT, timeMs);
+            // Committed before the next boot broadcast, which may run in a new process
+            if (bootCount >= 0) prefs.edit().putInt(KEY_LAST_BOOT_COUNT, bootCount).commit();
+        }
+        return true;
+    }
+
+    // Newest day first, at most `days` UTC days ending today
+    public static List<DayCount> dailyCounts(Context context, int days, long nowMs) {
+        long todayStart = nowMs - Math.floorMod(nowMs, DAY_MS);
+        long firstDay = todayStart - (days - 1) * DAY_MS;
+        List<DayCount> out = new ArrayList<>(days);
+        for (int i = 0; i < days; i++) {
+            out.add(new DayCount(todayStart - i * DAY_MS));
+        }
+
+        synchronized (LOCK) {
+            File f = file(context);
+            if (!f.exists()) return out;
+
+            try (RandomAccessFile raf = new RandomAccessFile(f, "r")) {
+                FileChannel channel = raf.getChannel();
+                int count = readHeader(channel)[1];
+                ByteBuffer records = ByteBuffer.allocate(count * RECORD_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.read(records, HEADER_BYTES);
+                records.flip();
+
+                while (records.remaining() >= RECORD_BYTES) {
+                    long timeMs = records.getLong();
+                    int source = records.getInt();
+                    if (timeMs < firstDay || timeMs >= todayStart + DAY_MS) continue;
+                    DayCount day = out.get((int) ((todayStart - (timeMs - Math.floorMod(timeMs, DAY_MS))) / DAY_MS));
+                    if (source >= 0 && source < SOURCE_NAMES.length) day.bySource[source]++;
+                    day.total++;
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "Could not read wakeup ledger", e);
+            }
+        }
+        return out;
+    }
+
+    private static File file(Context context) {
+        return new File(DirectBootStorage.context(context).getFilesDir(), FILE_NAME);
+    }
+
+    // Returns {next slot, count}; a missing or foreign header starts a fresh ring
+    private static int[] readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        if (channel.read(header, 0) == HEADER_BYTES) {
+            header.flip();
+            int magic = header.getInt();
+            int version = header.getInt();
+            int next = header.getInt();
+            int count = header.getInt();
+            if (magic == MAGIC && version == VERSION && next >= 0 && next < CAPACITY
+                    && count >= 0 && count <= CAPACITY) {
+                return new int[]{next, count};
+            }
+            Log.w(TAG, "Resetting unreadable wakeup ledger");
+        }
+        return new int[]{0, 0};
+    }
+
+    private static void writeHeader(FileChannel channel, int next, int count) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(next).putInt(count).flip();
+        channel.write(header, 0);
+    }
+}
@@ -0,0 +1,79 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ActiveAlarmQueueTest {
+
+    private static ActiveAlarmQueue.ActiveAlarm alarm(String id, int priority, long startedAtMs) {
+        return new ActiveAlarmQueue.ActiveAlarm(id, "Label " + id, "original", priority, startedAtMs);
+    }
+
+    private static String[] ids(List<ActiveAlarmQueue.ActiveAlarm> alarms) {
+        String[] out = new String[alarms.size()];
+        for (int i = 0; i < out.length; i++) out[i] = alarms.get(i).alarmId;
+        return out;
+    }
+
+    @Test
+    public void head_isHighestPriorityThenEarliest() {
+        ActiveAlarmQueue queue = new ActiveAlarmQueue();
+        queue.add(alarm("late-low", 0, 300));
+        queue.add(alarm("early-low", 0, 100));
+        queue.add(alarm("late-high", 2, 400));
+        queue.add(alarm("early-high", 2, 200));
+
+        assertEquals("early-high", queue.peek().alarmId);
+        assertArrayEquals(new String[]{"early-high", "late-high", "early-low", "late-low"},
+                ids(queue.snapshot()));
+    }
+
+    @Test
+    public void add_sameIdRefreshesInsteadOfDuplicating() {
+        ActiveAlarmQueue queue = new ActiveAlarmQueue();
+        assertTrue(queue.add(alarm("a", 0, 100)));
+        assertTrue(queue.add(alarm("b", 0, 200)));
+        assertFalse(queue.add(alarm("a", 0, 300)));
+
+        assertEquals(2, queue.size());
+        assertEquals("b", queue.peek().alarmId);
+        assertEquals(300, queue.snapshot().get(1).startedAtMs);
+    }
+
+    @Test
+    public void remove_returnsOnlyAlarmsThatWereRinging() {
+        ActiveAlarmQueue queue = new ActiveAlarmQueue();
+        queue.add(alarm("a", 1, 100));
+        queue.add(alarm("b", 0, 200));
+
+        List<ActiveAlarmQueue.ActiveAlarm> removed = queue.remove(Arrays.asList("a", "missing"));
+
+        assertArrayEquals(new String[]{"a"}, ids(removed));
+        assertEquals("b", queue.peek().alarmId);
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    public void clear_returnsEverythingInOrderAndEmpties() {
+        ActiveAlarmQueue queue = new ActiveAlarmQueue();
+        queue.add(alarm("b", 0, 200));
+        queue.add(alarm("a", 1, 300));
+
+        assertArrayEquals(new String[]{"a", "b"}, ids(queue.clear()));
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertTrue(queue.remove(Collections.singletonList("a")).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshot_isReadOnly() {
+        ActiveAlarmQueue queue = new ActiveAlarmQueue();
+        queue.add(alarm("a", 0, 100));
+        queue.snapshot().clear();
+    }
+}
@@ -0,0 +1,163 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlarmBackupTest {
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+    // The restore arms everything against the real clock, so keep every trigger ahead of it
+    private final long future = System.currentTimeMillis() + 2 * DAY_MS;
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private void storeSampleAlarms() {
+        AlarmStore.put(context, new AlarmRecord("one-shot", "Open", future, "chime", 1));
+        AlarmStore.put(context, new AlarmRecord("weekly", "Review", future + DAY_MS, "bell", 0,
+                AlarmRecord.REPEAT_WEEKLY, 0, 0));
+        AlarmStore.put(context, new AlarmRecord("weekdays", "London", future + 2 * DAY_MS, "original", 2,
+                AlarmRecord.REPEAT_DAYS, 0b0111110, 0));
+    }
+
+    private byte[] export(String clientData) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AlarmBackup.export(context, out, clientData);
+        return out.toByteArray();
+    }
+
+    private AlarmBackup.ImportResult importBytes(byte[] bytes, boolean replace) throws IOException {
+        return AlarmBackup.importFrom(context, new ByteArrayInputStream(bytes), replace);
+    }
+
+    private static void assertSameAlarm(AlarmRecord expected, AlarmRecord actual) {
+        assertNotNull(expected.alarmId, actual);
+        assertEquals(expected.alarmId, actual.alarmId);
+        assertEquals(expected.label, actual.label);
+        assertEquals(expected.soundId, actual.soundId);
+        assertEquals(expected.priority, actual.priority);
+        assertEquals(expected.repeat, actual.repeat);
+        assertEquals(expected.repeatDays, actual.repeatDays);
+        assertEquals(expected.firedAtMs, actual.firedAtMs);
+        // Weekday rules are re-armed from the restore time, so only compare fixed triggers
+        if (!AlarmRecord.REPEAT_DAYS.equals(expected.repeat)) {
+            assertEquals(expected.triggerTimeMs, actual.triggerTimeMs);
+        }
+    }
+
+    @Test
+    public void roundTrip_restoresAlarmsSettingsAndClientData() throws IOException {
+        storeSampleAlarms();
+        CatchUpPolicy.setWindowMinutes(context, 45);
+        SnoozePolicy.set(context, new int[]{5, 10}, 2);
+        List<AlarmRecord> before = AlarmStore.loadAll(context);
+
+        byte[] backup = export("{\"alarms\":[]}");
+
+        for (AlarmRecord record : before) AlarmStore.remove(context, record.alarmId);
+        CatchUpPolicy.setWindowMinutes(context, 10);
+        SnoozePolicy.set(context, new int[]{60}, 1);
+
+        AlarmBackup.ImportResult result = importBytes(backup, false);
+
+        assertEquals(before.size(), result.alarms);
+        assertTrue(result.settingsRestored);
+        assertEquals("{\"alarms\":[]}", result.clientData);
+        for (AlarmRecord expected : before) {
+            assertSameAlarm(expected, AlarmStore.get(context, expected.alarmId));
+        }
+        assertEquals(45, CatchUpPolicy.getWindowMinutes(context));
+        assertArrayEquals(new int[]{5, 10}, SnoozePolicy.getDurationsMinutes(context));
+        assertEquals(2, SnoozePolicy.getMaxCount(context));
+    }
+
+    @Test
+    public void roundTrip_withoutClientData() throws IOException {
+        storeSampleAlarms();
+        byte[] backup = export(null);
+
+        AlarmBackup.ImportResult result = importBytes(backup, false);
+
+        assertNull(result.clientData);
+        assertEquals(3, result.alarms);
+    }
+
+    @Test
+    public void replace_dropsAlarmsNotInTheBackup() throws IOException {
+        storeSampleAlarms();
+        byte[] backup = export(null);
+        AlarmStore.put(context, new AlarmRecord("extra", "Extra", future, null, 0));
+
+        AlarmBackup.ImportResult result = importBytes(backup, true);
+
+        assertEquals(1, result.removed);
+        assertNull(AlarmStore.get(context, "extra"));
+        assertEquals(3, AlarmStore.loadAll(context).size());
+    }
+
+    @Test
+    public void corruptedByte_isRejectedBeforeAnythingChanges() throws IOException {
+        storeSampleAlarms();
+        CatchUpPolicy.setWindowMinutes(context, 45);
+        byte[] backup = export(null);
+
+        AlarmStore.remove(context, "weekly");
+        CatchUpPolicy.setWindowMinutes(context, 10);
+
+        byte[] corrupted = Arrays.copyOf(backup, backup.length);
+        corrupted[corrupted.length / 2] ^= 0x01;
+        try {
+            importBytes(corrupted, true);
+            fail("Corrupted backup was accepted");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("checksum"));
+        }
+
+        assertNull(AlarmStore.get(context, "weekly"));
+        assertEquals(2, AlarmStore.loadAll(context).size());
+        assertEquals(10, CatchUpPolicy.getWindowMinutes(context));
+    }
+
+    @Test
+    public void truncatedFile_isRejected() throws IOException {
+        storeSampleAlarms();
+        byte[] backup = export(null);
+
+        try {
+            importBytes(Arrays.copyOf(backup, backup.length - 5), false);
+            fail("Truncated backup was accepted");
+        } catch (IOException expected) {
+        }
+        try {
+            importBytes(new byte[]{1, 2, 3}, false);
+            fail("Short file was accepted");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.AlarmManager;
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowAlarmManager;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlarmReceiverTest {
+
+    private static final long WEEK_MS = 7 * 24 * 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+    private final ShadowAlarmManager alarmManager =
+            shadowOf((AlarmManager) context.getSystemService(Context.ALARM_SERVICE));
+    // A fire that happens now, so the next occurrence is in the future for the real clock too
+    private final long firedAtMs = System.currentTimeMillis();
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private ShadowAlarmManager.ScheduledAlarm armedFor(String alarmId) {
+        int requestCode = AlarmStore.requestCode(context, alarmId);
+        for (ShadowAlarmManager.ScheduledAlarm alarm : alarmManager.getScheduledAlarms()) {
+            if (shadowOf(alarm.operation).getRequestCode() == requestCode) return alarm;
+        }
+        return null;
+    }
+
+    @Test
+    public void weeklyAlarmIsArmedForNextWeekAfterFiring() {
+        long triggerTimeMs = firedAtMs - 1000;
+        AlarmStore.put(context, new AlarmRecord("weekly", "Review", triggerTimeMs, null, 0,
+                AlarmRecord.REPEAT_WEEKLY, 0, 0));
+
+        AlarmReceiver.recordFire(context, "weekly", firedAtMs);
+
+        AlarmRecord stored = AlarmStore.get(context, "weekly");
+        assertEquals(triggerTimeMs + WEEK_MS, stored.triggerTimeMs);
+        assertEquals(firedAtMs, stored.firedAtMs);
+        assertFalse(stored.hasFired());
+
+        ShadowAlarmManager.ScheduledAlarm armed = armedFor("weekly");
+        assertNotNull(armed);
+        assertEquals(triggerTimeMs + WEEK_MS, armed.getTriggerAtMs());
+        assertEquals(AlarmManager.RTC_WAKEUP, armed.getType());
+    }
+
+    @Test
+    public void oneShotAlarmIsNotRearmed() {
+        AlarmStore.put(context, new AlarmRecord("once", "Open", firedAtMs - 1000, null, 0));
+
+        assertNull(AlarmReceiver.rearmRecurring(context, "once", firedAtMs));
+
+        assertEquals(firedAtMs - 1000, AlarmStore.get(context, "once").triggerTimeMs);
+        assertNull(armedFor("once"));
+    }
+
+    @Test
+    public void removedAlarmIsNotRearmed() {
+        assertNull(AlarmReceiver.rearmRecurring(context, "gone", firedAtMs));
+        assertTrue(alarmManager.getScheduledAlarms().isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+public class AlarmRecordTest {
+
+    private static long utc(int year, int month, int day, int hour, int minute) {
+        Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        c.clear();
+        c.set(year, month - 1, day, hour, minute, 0);
+        return c.getTimeInMillis();
+    }
+
+    private static AlarmRecord alarm(long triggerTimeMs, String repeat, int repeatDays) {
+        return new AlarmRecord("a1", "Test", triggerTimeMs, null, 0, repeat, repeatDays, 0);
+    }
+
+    @Test
+    public void monthly_31stOverflowsShortMonthsWithoutDrifting() {
+        AlarmRecord jan = alarm(utc(2026, 1, 31, 9, 30), AlarmRecord.REPEAT_MONTHLY, 31);
+
+        long feb = jan.nextOccurrenceAfter(utc(2026, 2, 1, 0, 0));
+        assertEquals(utc(2026, 3, 3, 9, 30), feb);
+
+        // Rolled forward from the overflowed trigger, the anchor day still wins
+        long mar = jan.withTriggerTime(feb).nextOccurrenceAfter(feb);
+        assertEquals(utc(2026, 3, 31, 9, 30), mar);
+
+        long apr = jan.withTriggerTime(mar).nextOccurrenceAfter(mar);
+        assertEquals(utc(2026, 5, 1, 9, 30), apr);
+
+        long may = jan.withTriggerTime(apr).nextOccurrenceAfter(apr);
+        assertEquals(utc(2026, 5, 31, 9, 30), may);
+    }
+
+    @Test
+    public void monthly_leapFebruary() {
+        AlarmRecord jan = alarm(utc(2028, 1, 30, 14, 0), AlarmRecord.REPEAT_MONTHLY, 30);
+        assertEquals(utc(2028, 3, 1, 14, 0), jan.nextOccurrenceAfter(utc(2028, 2, 10, 0, 0)));
+
+        AlarmRecord feb29 = alarm(utc(2028, 2, 29, 14, 0), AlarmRecord.REPEAT_MONTHLY, 29);
+        assertEquals(utc(2028, 3, 29, 14, 0), feb29.nextOccurrenceAfter(utc(2028, 2, 29, 14, 0)));
+    }
+
+    @Test
+    public void monthly_catchesUpOverManyMonths() {
+        AlarmRecord jan = alarm(utc(2026, 1, 31, 9, 30), AlarmRecord.REPEAT_MONTHLY, 31);
+        assertEquals(utc(2026, 8, 31, 9, 30), jan.nextOccurrenceAfter(utc(2026, 8, 15, 0, 0)));
+        // Across a year end
+        assertEquals(utc(2027, 1, 31, 9, 30), jan.nextOccurrenceAfter(utc(2026, 12, 31, 9, 30)));
+    }
+
+    @Test
+    public void monthly_withoutAnchorUsesTriggerDay() {
+        AlarmRecord record = alarm(utc(2026, 1, 15, 8, 0), AlarmRecord.REPEAT_MONTHLY, 0);
+        assertEquals(utc(2026, 2, 15, 8, 0), record.nextOccurrenceAfter(utc(2026, 1, 15, 8, 0)));
+    }
+
+    @Test
+    public void futureTriggerIsReturnedAsIs() {
+        long trigger = utc(2026, 4, 1, 12, 0);
+        AlarmRecord record = alarm(trigger, AlarmRecord.REPEAT_MONTHLY, 1);
+        assertEquals(trigger, record.nextOccurrenceAfter(utc(2026, 3, 20, 0, 0)));
+    }
+
+    @Test
+    public void weekly_stepsWholeWeeks() {
+        AlarmRecord record = alarm(utc(2026, 10, 5, 7, 0), AlarmRecord.REPEAT_WEEKLY, 0);
+        assertEquals(utc(2026, 10, 12, 7, 0), record.nextOccurrenceAfter(utc(2026, 10, 5, 7, 0)));
+        assertEquals(utc(2026, 10, 26, 7, 0), record.nextOccurrenceAfter(utc(2026, 10, 20, 0, 0)));
+    }
+
+    @Test
+    public void days_picksNextSelectedUtcWeekday() {
+        // Mondays and Wednesdays; 2026-10-19 is a Monday
+        int monWed = (1 << 1) | (1 << 3);
+        AlarmRecord record = alarm(utc(2026, 10, 12, 13, 30), AlarmRecord.REPEAT_DAYS, monWed);
+        assertEquals(utc(2026, 10, 19, 13, 30), record.nextOccurrenceAfter(utc(2026, 10, 19, 13, 0)));
+        assertEquals(utc(2026, 10, 21, 13, 30), record.nextOccurrenceAfter(utc(2026, 10, 19, 13, 30)));
+    }
+
+    @Test
+    public void nonRecurringHasNoNextOccurrence() {
+        assertEquals(-1, alarm(utc(2026, 10, 19, 9, 0), AlarmRecord.REPEAT_NONE, 0)
+                .nextOccurrenceAfter(utc(2026, 10, 1, 0, 0)));
+        assertEquals(-1, alarm(utc(2026, 10, 19, 9, 0), AlarmRecord.REPEAT_DAYS, 0)
+                .nextOccurrenceAfter(utc(2026, 10, 1, 0, 0)));
+    }
+}
@@ -0,0 +1,137 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlarmStoreCasTest {
+
+    private static final long NOW = 1_800_000_000_000L;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private AlarmRecord stored(String id) {
+        assertTrue(AlarmStore.put(context, new AlarmRecord(id, "Alarm " + id, NOW + HOUR_MS, null, 0)));
+        return AlarmStore.get(context, id);
+    }
+
+    @Test
+    public void writesBumpTheVersion() {
+        AlarmRecord first = stored("a");
+        assertTrue(first.version > 0);
+
+        assertTrue(AlarmStore.put(context, first.withTriggerTime(NOW + 2 * HOUR_MS)));
+        AlarmStore.markFired(context, "a", NOW);
+
+        assertEquals(first.version + 2, AlarmStore.get(context, "a").version);
+    }
+
+    @Test
+    public void stalePut_isRefusedAndLeavesTheRow() {
+        AlarmRecord read = stored("a");
+        assertTrue(AlarmStore.put(context, read.withTriggerTime(NOW + 2 * HOUR_MS)));
+
+        assertFalse(AlarmStore.put(context, read.withTriggerTime(NOW + 3 * HOUR_MS)));
+
+        assertEquals(NOW + 2 * HOUR_MS, AlarmStore.get(context, "a").triggerTimeMs);
+    }
+
+    @Test
+    public void stalePut_doesNotResurrectARemovedAlarm() {
+        AlarmRecord read = stored("a");
+        AlarmStore.remove(context, "a");
+
+        assertFalse(AlarmStore.put(context, read.withTriggerTime(NOW + 2 * HOUR_MS)));
+        assertNull(AlarmStore.get(context, "a"));
+    }
+
+    @Test
+    public void unversionedPut_overwrites() {
+        stored("a");
+        assertTrue(AlarmStore.put(context, new AlarmRecord("a", "New", NOW + 4 * HOUR_MS, null, 0)));
+
+        assertEquals("New", AlarmStore.get(context, "a").label);
+    }
+
+    @Test
+    public void update_retriesAfterAConflictingWrite() {
+        stored("a");
+        AtomicInteger calls = new AtomicInteger();
+
+        AlarmRecord result = AlarmStore.update(context, "a", current -> {
+            if (calls.getAndIncrement() == 0) {
+                // Another writer lands between this read and the write
+                assertTrue(AlarmStore.put(context, current.withFiredAt(NOW)));
+            }
+            return current.withTriggerTime(NOW + 5 * HOUR_MS);
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(NOW + 5 * HOUR_MS, result.triggerTimeMs);
+        // Retried against the new row, so the other write survives
+        assertEquals(NOW, result.firedAtMs);
+        assertEquals(result.triggerTimeMs, AlarmStore.get(context, "a").triggerTimeMs);
+    }
+
+    @Test
+    public void update_seesARemovalThatWonTheRace() {
+        stored("a");
+        AtomicInteger calls = new AtomicInteger();
+
+        AlarmRecord result = AlarmStore.update(context, "a", current -> {
+            calls.incrementAndGet();
+            if (current == null) return null;
+            AlarmStore.remove(context, "a");
+            return current.withTriggerTime(NOW + 5 * HOUR_MS);
+        });
+
+        assertEquals(2, calls.get());
+        assertNull(result);
+        assertNull(AlarmStore.get(context, "a"));
+    }
+
+    @Test
+    public void applyBatch_reportsStaleEntriesAndWritesTheRest() {
+        AlarmRecord staleRead = stored("stale");
+        AlarmRecord fresh = stored("fresh");
+        AlarmRecord removal = stored("removed");
+        assertTrue(AlarmStore.put(context, staleRead.withTriggerTime(NOW + 2 * HOUR_MS)));
+        AlarmStore.markFired(context, "removed", NOW);
+
+        List<String> conflicts = AlarmStore.applyBatch(context,
+                Arrays.asList(staleRead.withTriggerTime(NOW + 3 * HOUR_MS),
+                        fresh.withTriggerTime(NOW + 3 * HOUR_MS)),
+                Collections.singletonList(removal));
+
+        assertEquals(Arrays.asList("removed", "stale"), conflicts);
+        assertEquals(NOW + 2 * HOUR_MS, AlarmStore.get(context, "stale").triggerTimeMs);
+        assertEquals(NOW + 3 * HOUR_MS, AlarmStore.get(context, "fresh").triggerTimeMs);
+        assertNotNull(AlarmStore.get(context, "removed"));
+    }
+}
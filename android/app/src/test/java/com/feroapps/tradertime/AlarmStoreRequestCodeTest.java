@@ -0,0 +1,132 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+@RunWith(RobolectricTestRunner.class)
+public class AlarmStoreRequestCodeTest {
+
+    private static final long NOW = 1_800_000_000_000L;
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private static AlarmRecord oneShot(String id, long triggerTimeMs) {
+        return new AlarmRecord(id, "Alarm " + id, triggerTimeMs, null, 0);
+    }
+
+    private void putAll(String... ids) {
+        for (int i = 0; i < ids.length; i++) {
+            assertTrue(AlarmStore.put(context, oneShot(ids[i], NOW + (i + 1) * HOUR_MS)));
+        }
+    }
+
+    @Test
+    public void codesAreHandedOutDenselyFromTheFirst() {
+        putAll("a", "b", "c");
+
+        assertEquals(AlarmDatabase.FIRST_REQUEST_CODE, AlarmStore.requestCode(context, "a"));
+        assertEquals(AlarmDatabase.FIRST_REQUEST_CODE + 1, AlarmStore.requestCode(context, "b"));
+        assertEquals(AlarmDatabase.FIRST_REQUEST_CODE + 2, AlarmStore.requestCode(context, "c"));
+        assertEquals(0, AlarmStore.requestCode(context, "missing"));
+    }
+
+    @Test
+    public void updatesKeepTheirCode() {
+        putAll("a", "b");
+        int code = AlarmStore.requestCode(context, "b");
+
+        AlarmRecord stored = AlarmStore.get(context, "b");
+        assertTrue(AlarmStore.put(context, stored.withTriggerTime(NOW + 10 * HOUR_MS)));
+        AlarmStore.markFired(context, "b", NOW);
+
+        assertEquals(code, AlarmStore.requestCode(context, "b"));
+        assertEquals(code, AlarmStore.get(context, "b").requestCode);
+    }
+
+    @Test
+    public void removedCodeIsReusedBeforeNewOnes() {
+        putAll("a", "b", "c");
+        int freed = AlarmStore.requestCode(context, "b");
+
+        AlarmStore.remove(context, "b");
+        putAll("d");
+
+        assertEquals(freed, AlarmStore.requestCode(context, "d"));
+        putAll("e");
+        assertEquals(AlarmDatabase.FIRST_REQUEST_CODE + 3, AlarmStore.requestCode(context, "e"));
+    }
+
+    @Test
+    public void lowestFreedCodeComesFirst() {
+        putAll("a", "b", "c", "d");
+        int codeA = AlarmStore.requestCode(context, "a");
+        int codeC = AlarmStore.requestCode(context, "c");
+
+        AlarmStore.remove(context, "c");
+        AlarmStore.remove(context, "a");
+        putAll("x", "y");
+
+        assertEquals(codeA, AlarmStore.requestCode(context, "x"));
+        assertEquals(codeC, AlarmStore.requestCode(context, "y"));
+    }
+
+    @Test
+    public void triggerFreesCodesOnEveryDeletePath() {
+        putAll("batch", "update", "kept");
+        AlarmStore.put(context, oneShot("compacted", NOW - 48 * HOUR_MS));
+        int[] freed = {
+                AlarmStore.requestCode(context, "batch"),
+                AlarmStore.requestCode(context, "update"),
+                AlarmStore.requestCode(context, "compacted"),
+        };
+
+        AlarmStore.applyBatch(context, Collections.emptyList(),
+                Collections.singletonList(AlarmStore.get(context, "batch")));
+        assertNull(AlarmStore.update(context, "update", current -> null));
+        AlarmStore.Compaction c = AlarmStore.compact(context, NOW, HOUR_MS);
+        assertEquals(1, c.removed);
+
+        putAll("n1", "n2", "n3");
+        int[] reused = {
+                AlarmStore.requestCode(context, "n1"),
+                AlarmStore.requestCode(context, "n2"),
+                AlarmStore.requestCode(context, "n3"),
+        };
+        Arrays.sort(freed);
+        assertArrayEquals(freed, reused);
+    }
+
+    @Test
+    public void reinsertedIdGetsACodeAgain() {
+        putAll("a");
+        AlarmStore.remove(context, "a");
+        assertNull(AlarmStore.get(context, "a"));
+
+        putAll("a");
+        assertEquals(AlarmDatabase.FIRST_REQUEST_CODE, AlarmStore.requestCode(context, "a"));
+    }
+}
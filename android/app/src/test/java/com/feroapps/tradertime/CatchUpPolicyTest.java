@@ -0,0 +1,41 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class CatchUpPolicyTest {
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Test
+    public void window_defaultsToThirtyMinutes() {
+        assertEquals(CatchUpPolicy.DEFAULT_WINDOW_MINUTES, CatchUpPolicy.getWindowMinutes(context));
+        assertEquals(30 * 60_000L, CatchUpPolicy.getWindowMs(context));
+    }
+
+    @Test
+    public void setWindowMinutes_persistsInDeviceStorage() {
+        CatchUpPolicy.setWindowMinutes(context, 90);
+
+        assertEquals(90, CatchUpPolicy.getWindowMinutes(context));
+        assertEquals(90 * 60_000L, CatchUpPolicy.getWindowMs(context));
+        assertEquals(90, DirectBootStorage.prefs(context, "TraderTimeSettings")
+                .getInt("catch_up_window_minutes", -1));
+    }
+
+    @Test
+    public void setWindowMinutes_clampsToRange() {
+        CatchUpPolicy.setWindowMinutes(context, -5);
+        assertEquals(0, CatchUpPolicy.getWindowMinutes(context));
+
+        CatchUpPolicy.setWindowMinutes(context, CatchUpPolicy.MAX_WINDOW_MINUTES + 1);
+        assertEquals(CatchUpPolicy.MAX_WINDOW_MINUTES, CatchUpPolicy.getWindowMinutes(context));
+    }
+}
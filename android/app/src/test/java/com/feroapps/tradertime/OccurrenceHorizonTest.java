@@ -0,0 +1,100 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class OccurrenceHorizonTest {
+
+    // Half a minute past a whole minute, so no fixed session rings in the next few seconds
+    private static final long NOW = 1_800_000_030_000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private static AlarmRecord alarm(String id, long triggerTimeMs, String repeat) {
+        return new AlarmRecord(id, "Alarm " + id, triggerTimeMs, null, 0, repeat, 0, 0);
+    }
+
+    @Test
+    public void next_findsStoredAlarmAheadOfSessions() {
+        AlarmStore.put(context, alarm("soon", NOW + 1000, AlarmRecord.REPEAT_NONE));
+
+        OccurrenceHorizon.Occurrence next = OccurrenceHorizon.next(context, NOW);
+
+        assertEquals(OccurrenceHorizon.KIND_USER, next.kind);
+        assertEquals("soon", next.id);
+        assertEquals("Alarm soon", next.label);
+        assertEquals(NOW + 1000, next.timeMs);
+    }
+
+    @Test
+    public void next_withoutUserAlarmsIsASession() {
+        OccurrenceHorizon.Occurrence next = OccurrenceHorizon.next(context, NOW);
+
+        assertNotNull(next);
+        assertEquals(OccurrenceHorizon.KIND_SESSION, next.kind);
+        assertTrue(next.timeMs > NOW);
+    }
+
+    @Test
+    public void storeWritesUpdateABuiltHorizon() {
+        OccurrenceHorizon.next(context, NOW);
+
+        AlarmStore.put(context, alarm("a", NOW + 2000, AlarmRecord.REPEAT_NONE));
+        assertEquals("a", OccurrenceHorizon.next(context, NOW).id);
+
+        AlarmStore.put(context, alarm("b", NOW + 1000, AlarmRecord.REPEAT_NONE));
+        assertEquals("b", OccurrenceHorizon.next(context, NOW).id);
+
+        AlarmStore.remove(context, "b");
+        assertEquals("a", OccurrenceHorizon.next(context, NOW).id);
+
+        AlarmStore.put(context, AlarmStore.get(context, "a").withTriggerTime(NOW + 3000));
+        OccurrenceHorizon.Occurrence next = OccurrenceHorizon.next(context, NOW);
+        assertEquals("a", next.id);
+        assertEquals(NOW + 3000, next.timeMs);
+    }
+
+    @Test
+    public void recurringAlarmKeepsComingUpAfterEachOccurrence() {
+        AlarmStore.put(context, alarm("weekly", NOW + 1000, AlarmRecord.REPEAT_WEEKLY));
+        long weekMs = 7 * DAY_MS;
+
+        for (int week = 0; week < 3; week++) {
+            long due = NOW + 1000 + week * weekMs;
+            OccurrenceHorizon.Occurrence next = OccurrenceHorizon.next(context, due - 1000);
+            assertEquals("weekly", next.id);
+            assertEquals(due, next.timeMs);
+        }
+    }
+
+    @Test
+    public void invalidateAllRebuildsFromTheStore() {
+        AlarmStore.put(context, alarm("a", NOW + 1000, AlarmRecord.REPEAT_NONE));
+        assertEquals("a", OccurrenceHorizon.next(context, NOW).id);
+
+        OccurrenceHorizon.invalidateAll();
+        assertEquals("a", OccurrenceHorizon.next(context, NOW).id);
+    }
+}
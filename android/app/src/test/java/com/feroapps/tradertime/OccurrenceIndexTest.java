@@ -0,0 +1,148 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class OccurrenceIndexTest {
+
+    private static void assertTimes(OccurrenceIndex index, long... expected) {
+        assertEquals(expected.length, index.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("time at " + i, expected[i], index.timeAt(i));
+        }
+    }
+
+    @Test
+    public void insert_keepsTimesSortedAndOwnersAligned() {
+        OccurrenceIndex index = new OccurrenceIndex(2);
+        index.insert(30, 3);
+        index.insert(10, 1);
+        index.insert(40, 4);
+        index.insert(20, 2);
+        index.insert(5, 0);
+
+        assertTimes(index, 5, 10, 20, 30, 40);
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(i, index.ownerAt(i));
+        }
+    }
+
+    @Test
+    public void insert_equalTimesKeepInsertionOrder() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        index.insert(10, 1);
+        index.insert(10, 2);
+        index.insert(10, 3);
+
+        assertTimes(index, 10, 10, 10);
+        assertEquals(1, index.ownerAt(0));
+        assertEquals(2, index.ownerAt(1));
+        assertEquals(3, index.ownerAt(2));
+    }
+
+    @Test
+    public void insert_growsPastInitialCapacity() {
+        OccurrenceIndex index = new OccurrenceIndex(1);
+        for (int i = 999; i >= 0; i--) {
+            index.insert(i, i);
+        }
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, index.timeAt(i));
+            assertEquals(i, index.ownerAt(i));
+        }
+    }
+
+    @Test
+    public void removeOwner_dropsOnlyThatOwner() {
+        OccurrenceIndex index = new OccurrenceIndex(8);
+        index.insert(10, 1);
+        index.insert(20, 2);
+        index.insert(30, 1);
+        index.insert(40, 3);
+        index.insert(50, 1);
+
+        index.removeOwner(1);
+
+        assertTimes(index, 20, 40);
+        assertEquals(2, index.ownerAt(0));
+        assertEquals(3, index.ownerAt(1));
+    }
+
+    @Test
+    public void removeOwner_unknownOwnerIsNoOp() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        index.insert(10, 1);
+        index.insert(20, 2);
+
+        index.removeOwner(7);
+
+        assertTimes(index, 10, 20);
+    }
+
+    @Test
+    public void removeOwner_thenInsertReusesSpace() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        index.insert(10, 1);
+        index.insert(20, 1);
+        index.removeOwner(1);
+        assertEquals(0, index.size());
+
+        index.insert(15, 1);
+        assertTimes(index, 15);
+        assertEquals(1, index.ownerAt(0));
+    }
+
+    @Test
+    public void sortTail_sortsOnlyAppendedEntries() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        index.insert(10, 0);
+        index.insert(20, 0);
+        int tailStart = index.size();
+        index.append(50, 5);
+        index.append(30, 3);
+        index.append(40, 4);
+        index.append(30, 6);
+
+        index.sortTail(tailStart);
+
+        assertTimes(index, 10, 20, 30, 30, 40, 50);
+        assertEquals(3, index.ownerAt(2));
+        assertEquals(6, index.ownerAt(3));
+        assertEquals(4, index.ownerAt(4));
+        assertEquals(5, index.ownerAt(5));
+    }
+
+    @Test
+    public void trimBefore_dropsEarlierTimes() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        index.insert(10, 1);
+        index.insert(20, 2);
+        index.insert(30, 3);
+
+        assertEquals(0, index.trimBefore(5));
+        assertEquals(1, index.trimBefore(20));
+
+        assertTimes(index, 20, 30);
+        assertEquals(2, index.ownerAt(0));
+    }
+
+    @Test
+    public void bounds_onEmptyAndAroundEqualTimes() {
+        OccurrenceIndex index = new OccurrenceIndex(4);
+        assertEquals(0, index.lowerBound(10));
+        assertEquals(0, index.upperBound(10));
+
+        index.insert(10, 1);
+        index.insert(20, 2);
+        index.insert(20, 3);
+        index.insert(30, 4);
+
+        assertEquals(1, index.lowerBound(20));
+        assertEquals(3, index.upperBound(20));
+        assertEquals(0, index.lowerBound(Long.MIN_VALUE));
+        assertEquals(4, index.upperBound(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,85 @@
+package com.feroapps.tradertime;
+
+import static org.junit.Assert.*;
+
+import android.content.Context;
+import android.provider.Settings;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class WakeupLedgerTest {
+
+    private static final long NOW = 1_800_000_000_000L;
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final Context context = RuntimeEnvironment.getApplication();
+
+    @Before
+    public void setUp() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    @After
+    public void tearDown() {
+        AlarmDatabase.closeInstance();
+        OccurrenceHorizon.invalidateAll();
+    }
+
+    private void setBootCount(int bootCount) {
+        Settings.Global.putInt(context.getContentResolver(), Settings.Global.BOOT_COUNT, bootCount);
+    }
+
+    private WakeupLedger.DayCount today() {
+        return WakeupLedger.dailyCounts(context, 1, NOW).get(0);
+    }
+
+    @Test
+    public void dailyCounts_splitByDayAndSource() {
+        WakeupLedger.record(context, WakeupLedger.SOURCE_USER_ALARM, NOW);
+        WakeupLedger.record(context, WakeupLedger.SOURCE_USER_ALARM, NOW - 1000);
+        WakeupLedger.record(context, WakeupLedger.SOURCE_FIXED_SESSION, NOW - DAY_MS);
+
+        List<WakeupLedger.DayCount> days = WakeupLedger.dailyCounts(context, 2, NOW);
+
+        assertEquals(2, days.get(0).total);
+        assertEquals(2, days.get(0).bySource[WakeupLedger.SOURCE_USER_ALARM]);
+        assertEquals(1, days.get(1).total);
+        assertEquals(1, days.get(1).bySource[WakeupLedger.SOURCE_FIXED_SESSION]);
+    }
+
+    @Test
+    public void recordBoot_countsEachBootOnce() {
+        setBootCount(7);
+        // LOCKED_BOOT_COMPLETED, then BOOT_COMPLETED after unlock
+        assertTrue(WakeupLedger.recordBoot(context, NOW));
+        assertFalse(WakeupLedger.recordBoot(context, NOW + 1000));
+        assertEquals(1, today().bySource[WakeupLedger.SOURCE_BOOT]);
+
+        setBootCount(8);
+        assertTrue(WakeupLedger.recordBoot(context, NOW + 2000));
+        assertEquals(2, today().bySource[WakeupLedger.SOURCE_BOOT]);
+    }
+
+    @Test
+    public void bootPasses_recordOneBootAndPackageReplacementNone() {
+        setBootCount(3);
+        long now = System.currentTimeMillis();
+
+        AlarmRescheduler.run(context, AlarmRescheduler.REASON_BOOT, 0);
+        AlarmRescheduler.run(context, AlarmRescheduler.REASON_BOOT, 0);
+        AlarmRescheduler.run(context, AlarmRescheduler.REASON_PACKAGE_REPLACED, 0);
+
+        WakeupLedger.DayCount day = WakeupLedger.dailyCounts(context, 1, now).get(0);
+        assertEquals(1, day.bySource[WakeupLedger.SOURCE_BOOT]);
+        assertEquals(1, day.total);
+    }
+}
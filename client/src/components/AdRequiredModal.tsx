@@ -1,3 +1,4 @@
+import { useEffect } from "react";
 import { Button } from "@/components/ui/button";
 import {
   Dialog,
@@ -7,6 +8,7 @@ import {
   DialogFooter,
   DialogDescription,
 } from "@/components/ui/dialog";
+import { prefetchRewardedAd } from "@/utils/adService";
 
 interface AdRequiredModalProps {
   open: boolean;
@@ -29,6 +31,12 @@ export function AdRequiredModal({
   continueLabel = "Continue",
   cancelLabel = "Cancel",
 }: AdRequiredModalProps) {
+  // Start loading while the user reads the prompt, so Continue usually finds a cached ad.
+  // Not at app start: a launch from a ringing alarm should not bring up the ads SDK.
+  useEffect(() => {
+    if (open) prefetchRewardedAd();
+  }, [open]);
+
   function handleContinue() {
     onOpenChange(false);
     onContinue();
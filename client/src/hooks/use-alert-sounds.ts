@@ -0,0 +1,8 @@
+import * as React from "react"
+
+import { getAlertSounds, subscribeAlertSounds, type AlertSound } from "@/utils/soundLibrary"
+
+// Re-renders when loadSoundCatalog() publishes the native list or an import changes it
+export function useAlertSounds(): AlertSound[] {
+  return React.useSyncExternalStore(subscribeAlertSounds, getAlertSounds)
+}
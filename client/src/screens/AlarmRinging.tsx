@@ -1,9 +1,9 @@
 import { useEffect, useState } from "react";
 import { useLocation } from "wouter";
 import { Button } from "@/components/ui/button";
-import { Bell, Clock, X } from "lucide-react";
+import { AlarmClock, Bell, Clock, X } from "lucide-react";
 import { getAlarms } from "@/storage/alarmsRepo";
-import { stopCurrentAlarmNative } from "@/utils/userAlarmPlugin";
+import { snoozeCurrentAlarmNative, stopCurrentAlarmNative } from "@/utils/userAlarmPlugin";
 import { scheduleAlarmNotification } from "@/utils/nativeNotifications";
 import type { Alarm } from "@/types/Alarm";
 
@@ -43,6 +43,12 @@ export function AlarmRinging() {
     setLocation("/");
   }
 
+  // Native re-arm: the same path as the lock screen button, no JS scheduling involved
+  async function handleSnooze() {
+    await snoozeCurrentAlarmNative();
+    setLocation("/");
+  }
+
   return (
     <div className="flex flex-col items-center justify-center min-h-screen bg-background p-6">
       <div className="flex flex-col items-center gap-8 max-w-sm w-full">
@@ -73,6 +79,16 @@ export function AlarmRinging() {
             <X className="w-5 h-5 mr-2" />
             Stop
           </Button>
+          <Button
+            size="lg"
+            variant="outline"
+            className="w-full text-lg"
+            onClick={handleSnooze}
+            data-testid="button-snooze-alarm"
+          >
+            <AlarmClock className="w-5 h-5 mr-2" />
+            Snooze
+          </Button>
         </div>
       </div>
     </div>
@@ -19,9 +19,10 @@ import {
   AlertDialogTitle,
 } from "@/components/ui/alert-dialog";
 import { Switch } from "@/components/ui/switch";
-import { getAlarms, deleteAlarm, toggleAlarm } from "@/storage/alarmsRepo";
-import { Trash2, ChevronRight, Shield, AlertTriangle, Volume2, Play, Square, Check, FileText, Settings2 } from "lucide-react";
-import { alertSounds, getSelectedSoundId, setSelectedSoundId, playSound, stopSound, getSoundById, getCustomSoundName, getCustomSoundDescription } from "@/utils/soundLibrary";
+import { getAlarms, deleteAlarm, toggleAlarm, exportAlarmsBackup, importAlarmsBackup } from "@/storage/alarmsRepo";
+import { Trash2, ChevronRight, Shield, AlertTriangle, Volume2, Play, Square, Check, FileText, Settings2, Upload, Download, Archive } from "lucide-react";
+import { getSelectedSoundId, setSelectedSoundId, playSound, stopSound, getSoundById, getCustomSoundName, getCustomSoundDescription, importAlertSound, removeAlertSound, DEFAULT_SOUND_ID } from "@/utils/soundLibrary";
+import { useAlertSounds } from "@/hooks/use-alert-sounds";
 import { isAndroidPlatform, openAndroidNotificationSettings, openAndroidBatteryOptimizationSettings, checkExactAlarmPermission, openExactAlarmSettings, openAndroidAlarmSoundSettings } from "@/utils/nativeNotifications";
 import type { Alarm } from "@/types";
 
@@ -186,6 +187,8 @@ export function Settings() {
   const [alertToDelete, setAlertToDelete] = useState<Alarm | null>(null);
   const [selectedSound, setSelectedSound] = useState(getSelectedSoundId);
   const [playingPreview, setPlayingPreview] = useState<string | null>(null);
+  const [backupStatus, setBackupStatus] = useState<string | null>(null);
+  const alertSounds = useAlertSounds();
 
   const selectedSoundName = getSoundById(selectedSound)?.name || "Default";
 
@@ -197,6 +200,26 @@ export function Settings() {
     setSoundDialogOpen(false);
   }
 
+  async function handleImportSound() {
+    stopSound();
+    setPlayingPreview(null);
+    const soundId = await importAlertSound();
+    if (soundId) {
+      handleSoundSelect(soundId);
+    }
+  }
+
+  async function handleRemoveSound(soundId: string) {
+    stopSound();
+    setPlayingPreview(null);
+    const removed = await removeAlertSound(soundId);
+    // Alarms still naming the removed sound fall back to the default natively
+    if (removed && selectedSound === soundId) {
+      setSelectedSound(DEFAULT_SOUND_ID);
+      setSelectedSoundId(DEFAULT_SOUND_ID);
+    }
+  }
+
   function handleSoundDialogClose(open: boolean) {
     if (!open) {
       stopSound();
@@ -220,6 +243,21 @@ export function Settings() {
     await loadAllAlarms();
   }
 
+  async function handleExportBackup() {
+    const exported = await exportAlarmsBackup();
+    setBackupStatus(exported ? null : "Export failed");
+  }
+
+  async function handleImportBackup() {
+    const result = await importAlarmsBackup();
+    if (result.success) {
+      await loadAllAlarms();
+      setBackupStatus(`Restored ${result.alarms ?? 0} alerts`);
+    } else if (result.error !== "No backup selected") {
+      setBackupStatus(`Restore failed: ${result.error ?? "unknown error"}`);
+    }
+  }
+
   function requestDelete(alarm: Alarm) {
     setAlertToDelete(alarm);
     setDeleteConfirmOpen(true);
@@ -343,7 +381,7 @@ export function Settings() {
                       </p>
                     </div>
                   </div>
-                  {sound.id !== 'custom' && (
+                  {sound.file && (
                     <Button
                       size="icon"
                       variant="ghost"
@@ -366,9 +404,33 @@ export function Settings() {
                       )}
                     </Button>
                   )}
+                  {sound.imported && (
+                    <Button
+                      size="icon"
+                      variant="ghost"
+                      onClick={(e) => {
+                        e.stopPropagation();
+                        handleRemoveSound(sound.id);
+                      }}
+                      data-testid={`button-remove-sound-${sound.id}`}
+                    >
+                      <Trash2 className="w-4 h-4" />
+                    </Button>
+                  )}
                 </div>
               ))}
             </div>
+            {isAndroidPlatform() && (
+              <Button
+                variant="outline"
+                className="w-full"
+                onClick={handleImportSound}
+                data-testid="button-import-sound"
+              >
+                <Upload className="w-4 h-4 mr-2" />
+                Import Sound
+              </Button>
+            )}
           </DialogContent>
         </Dialog>
 
@@ -399,6 +461,45 @@ export function Settings() {
           </div>
         )}
 
+        {isAndroidPlatform() && (
+          <div className="p-4 bg-muted rounded-md">
+            <div className="flex items-center gap-3 mb-4">
+              <Archive className="w-5 h-5 text-muted-foreground" />
+              <div>
+                <p className="font-medium">Backup</p>
+                <p className="text-sm text-muted-foreground">
+                  Move your alerts and alarm settings to another phone
+                </p>
+              </div>
+            </div>
+            <div className="space-y-2">
+              <Button
+                variant="outline"
+                className="w-full"
+                onClick={handleExportBackup}
+                data-testid="button-export-backup"
+              >
+                <Download className="w-4 h-4 mr-2" />
+                Export Alerts
+              </Button>
+              <Button
+                variant="outline"
+                className="w-full"
+                onClick={handleImportBackup}
+                data-testid="button-import-backup"
+              >
+                <Upload className="w-4 h-4 mr-2" />
+                Restore Alerts
+              </Button>
+              {backupStatus && (
+                <p className="text-xs text-muted-foreground text-center" data-testid="text-backup-status">
+                  {backupStatus}
+                </p>
+              )}
+            </div>
+          </div>
+        )}
+
         <div className="p-4 bg-muted rounded-md">
           <div className="flex items-center gap-3 mb-4">
             <FileText className="w-5 h-5 text-muted-foreground" />
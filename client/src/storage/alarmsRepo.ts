@@ -2,6 +2,7 @@ import localforage from 'localforage';
 import type { Alarm, CreateAlarmInput } from '@/types/Alarm';
 import { fixedAlarms } from '@/data/fixedAlarms';
 import { scheduleAlarmNotification, cancelAlarmNotification } from '@/utils/nativeNotifications';
+import { exportAlarmsNative, pickBackupNative, type AlarmImportResult } from '@/utils/userAlarmPlugin';
 
 const ALARMS_KEY = 'alarms';
 
@@ -107,7 +108,7 @@ export async function updateAlarm(updatedAlarm: Alarm): Promise<Alarm | null> {
   if (updatedAlarm.isEnabled) {
     scheduleAlarmNotification(updatedAlarm);
   } else {
-    cancelAlarmNotification(updatedAlarm.id, !updatedAlarm.isFixed);
+    cancelAlarmNotification(updatedAlarm.id, !updatedAlarm.isFixed, true);
   }
   
   return updatedAlarm;
@@ -125,7 +126,7 @@ export async function toggleAlarm(id: string, isEnabled: boolean): Promise<Alarm
   if (isEnabled) {
     scheduleAlarmNotification(alarm);
   } else {
-    cancelAlarmNotification(alarm.id, !alarm.isFixed);
+    cancelAlarmNotification(alarm.id, !alarm.isFixed, true);
   }
   
   return alarm;
@@ -143,13 +144,59 @@ export async function deleteAlarm(id: string): Promise<boolean> {
     return false;
   }
   
-  cancelAlarmNotification(id, true);
+  cancelAlarmNotification(id, true, true);
   
   const filtered = alarms.filter((a) => a.id !== id);
   await localforage.setItem(ALARMS_KEY, filtered);
   return true;
 }
 
+// The native backup also carries this list, so restored alarms can be seen and edited
+export async function exportAlarmsBackup(): Promise<boolean> {
+  const alarms = await getAlarms();
+  const uri = await exportAlarmsNative(JSON.stringify(alarms), true);
+  return uri !== null;
+}
+
+// Native code restores and arms the alarms; this brings the list in line with it.
+// Session alerts keep their ids and only take the backup's on/off state.
+export async function importAlarmsBackup(replace: boolean = false): Promise<AlarmImportResult> {
+  const result = await pickBackupNative(replace);
+  if (!result.success) return result;
+  if (!result.clientData) {
+    console.warn('[Alarms] Backup has no alarm list; only the native alarms were restored');
+    return result;
+  }
+
+  let restored: Alarm[];
+  try {
+    restored = JSON.parse(result.clientData) as Alarm[];
+  } catch (e) {
+    console.error('[Alarms] Unreadable alarm list in backup:', e);
+    return result;
+  }
+
+  const fromBackup = new Map(restored.map((a) => [a.id, a]));
+  const merged: Alarm[] = [];
+  for (const alarm of await getAlarms()) {
+    const backup = fromBackup.get(alarm.id);
+    fromBackup.delete(alarm.id);
+    if (alarm.isFixed) {
+      merged.push(backup?.isFixed ? { ...alarm, isEnabled: backup.isEnabled } : alarm);
+    } else if (backup) {
+      merged.push(backup);
+    } else if (!replace) {
+      merged.push(alarm);
+    }
+  }
+  for (const alarm of fromBackup.values()) {
+    if (!alarm.isFixed) merged.push(alarm);
+  }
+  await localforage.setItem(ALARMS_KEY, merged);
+  console.log(`[Alarms] Restored ${restored.length} alarms from backup (replace: ${replace})`);
+  return result;
+}
+
 export async function clearAllAlarms(): Promise<void> {
   await localforage.removeItem(ALARMS_KEY);
 }
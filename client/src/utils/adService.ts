@@ -2,7 +2,44 @@ import { Capacitor, registerPlugin } from "@capacitor/core";
 
 interface RewardedAdsPlugin {
   load(options: { adUnitId: string }): Promise<void>;
-  show(): Promise<{ rewarded: boolean }>;
+  prefetch(options: { adUnitId: string }): Promise<void>;
+  show(options?: { adUnitId?: string }): Promise<{ rewarded: boolean }>;
+  getMetrics(): Promise<AdMetrics>;
+}
+
+export interface AdTiming {
+  count: number;
+  avgMs: number;
+  maxMs: number;
+  lastMs: number;
+}
+
+// In-process only; resets when the app process restarts
+export interface AdMetrics {
+  sdkInitMs: number;
+  loads: {
+    started: number;
+    filled: number;
+    noFill: number;
+    failed: number;
+    fillRate: number;
+    fillLatency: AdTiming;
+    // No-fill and error responses
+    failureLatency: AdTiming;
+  };
+  loadRequests: { count: number; cacheHits: number; cacheHitRate: number; wait: AdTiming };
+  shows: {
+    requested: number;
+    // show() found no cached ad
+    cacheMisses: number;
+    // A loaded ad failed to show
+    failed: number;
+    dismissed: number;
+    rewarded: number;
+    rewardRate: number;
+    timeToShow: AdTiming;
+    showToDismiss: AdTiming;
+  };
 }
 
 const RewardedAds = registerPlugin<RewardedAdsPlugin>("RewardedAds");
@@ -25,6 +62,32 @@ export function areAdsEnabled(): boolean {
   return config.enabled;
 }
 
+// Warms the native ad cache so a later showRewardedAd() doesn't wait on the network
+export async function prefetchRewardedAd(): Promise<void> {
+  if (!config.enabled || !Capacitor.isNativePlatform() || Capacitor.getPlatform() !== "android") {
+    return;
+  }
+
+  try {
+    await RewardedAds.prefetch({ adUnitId: REWARDED_AD_UNIT_ID });
+  } catch (error) {
+    console.error("[AdService] Rewarded ad prefetch error:", error);
+  }
+}
+
+export async function getAdMetrics(): Promise<AdMetrics | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== "android") {
+    return null;
+  }
+
+  try {
+    return await RewardedAds.getMetrics();
+  } catch (error) {
+    console.error("[AdService] Failed to get ad metrics:", error);
+    return null;
+  }
+}
+
 export async function showRewardedAd(): Promise<boolean> {
   if (!config.enabled) {
     return true;
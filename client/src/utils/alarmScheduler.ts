@@ -1,10 +1,21 @@
+import { Capacitor, type PluginListenerHandle } from '@capacitor/core';
 import { getAlarms } from '@/storage/alarmsRepo';
 import { playAlarm } from '@/utils/soundPlayer';
 import { shouldAlarmTrigger } from '@/utils/marketHours';
+import { addUserAlarmListener, getNextDueNative, type NextDue } from '@/utils/userAlarmPlugin';
 import type { Alarm } from '@/types/Alarm';
 
+// Polling is only the web fallback; on Android native events wake the scheduler
 const CHECK_INTERVAL_MS = 10000;
+// Lands the backup wake inside the due minute even with timer jitter
+const WAKE_SLACK_MS = 1000;
+// setTimeout overflows above 2^31 - 1 ms
+const MAX_TIMER_MS = 2147483647;
+
 let schedulerInterval: ReturnType<typeof setInterval> | null = null;
+let wakeTimer: ReturnType<typeof setTimeout> | null = null;
+let listenerHandles: PluginListenerHandle[] = [];
+let eventDriven = false;
 let lastTriggeredKey: string | null = null;
 let onFixedAlarmTriggered: (() => void) | null = null;
 
@@ -111,7 +122,11 @@ async function checkAlarms(): Promise<void> {
       const triggerKey = createTriggerKey(alarm.id, utcTime.hours, utcTime.minutes, utcTime.dayOfMonth);
       
       if (lastTriggeredKey !== triggerKey) {
-        playAlarm(alarm.duration);
+        // On Android AlarmSoundService is already ringing, and a WebView loop on top
+        // would keep playing after a stop from the notification or the alarm screen
+        if (!useNativeEvents()) {
+          playAlarm(alarm.duration);
+        }
         lastTriggeredKey = triggerKey;
         
         if (alarm.isFixed && onFixedAlarmTriggered) {
@@ -122,27 +137,78 @@ async function checkAlarms(): Promise<void> {
   }
 }
 
+function useNativeEvents(): boolean {
+  return Capacitor.isNativePlatform() && Capacitor.getPlatform() === 'android';
+}
+
+// Backup for a missed alarmFired event: sleep until the next native due time.
+// checkAlarms() dedupes, so firing on both paths is harmless.
+function planWake(next: Partial<NextDue> | null): void {
+  if (wakeTimer !== null) {
+    clearTimeout(wakeTimer);
+    wakeTimer = null;
+  }
+  if (!eventDriven || !next || next.triggerTimeMs === undefined) {
+    return;
+  }
+
+  const delay = Math.min(Math.max(0, next.triggerTimeMs - Date.now()) + WAKE_SLACK_MS, MAX_TIMER_MS);
+  wakeTimer = setTimeout(async () => {
+    wakeTimer = null;
+    await checkAlarms();
+    planWake(await getNextDueNative());
+  }, delay);
+}
+
+async function startEventDriven(): Promise<void> {
+  const handles = await Promise.all([
+    addUserAlarmListener('alarmFired', () => {
+      checkAlarms();
+    }),
+    addUserAlarmListener('nextDueChanged', (next) => planWake(next)),
+  ]);
+
+  // stopScheduler() may have run while the listeners were being added
+  if (!eventDriven) {
+    handles.forEach((h) => h?.remove());
+    return;
+  }
+  listenerHandles = handles.filter((h): h is PluginListenerHandle => h !== null);
+  planWake(await getNextDueNative());
+}
+
 export function startScheduler(): void {
-  if (schedulerInterval !== null) {
+  if (schedulerInterval !== null || eventDriven) {
     return;
   }
 
   checkAlarms();
+  if (useNativeEvents()) {
+    eventDriven = true;
+    startEventDriven();
+    return;
+  }
   schedulerInterval = setInterval(checkAlarms, CHECK_INTERVAL_MS);
 }
 
 export function stopScheduler(): void {
-  if (schedulerInterval === null) {
+  if (schedulerInterval === null && !eventDriven) {
     return;
   }
 
-  clearInterval(schedulerInterval);
-  schedulerInterval = null;
+  if (schedulerInterval !== null) {
+    clearInterval(schedulerInterval);
+    schedulerInterval = null;
+  }
+  eventDriven = false;
+  planWake(null);
+  listenerHandles.forEach((h) => h.remove());
+  listenerHandles = [];
   lastTriggeredKey = null;
 }
 
 export function isSchedulerRunning(): boolean {
-  return schedulerInterval !== null;
+  return schedulerInterval !== null || eventDriven;
 }
 
 export function setFixedAlarmCallback(callback: (() => void) | null): void {
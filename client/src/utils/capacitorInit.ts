@@ -1,6 +1,7 @@
 import { Capacitor } from '@capacitor/core';
 import { App } from '@capacitor/app';
 import { initializeNotifications, rescheduleAllAlarms } from '@/utils/nativeNotifications';
+import { loadSoundCatalog } from '@/utils/soundLibrary';
 
 export async function initCapacitor(): Promise<void> {
   if (!Capacitor.isNativePlatform()) {
@@ -9,6 +10,8 @@ export async function initCapacitor(): Promise<void> {
 
   console.log('[CapacitorInit] ===== APP COLD START =====');
   console.log('[CapacitorInit] Platform:', Capacitor.getPlatform());
+  loadSoundCatalog();
+
   console.log('[CapacitorInit] Calling initializeNotifications...');
   
   await initializeNotifications();
@@ -5,6 +5,7 @@ import { getAlarms } from '@/storage/alarmsRepo';
 import { migrateSoundId } from '@/utils/soundLibrary';
 import { getSelectedSoundId } from '@/utils/soundLibrary';
 import { scheduleUserAlarmNative, cancelUserAlarmNative, isAndroidNative, isIOSNative, canScheduleExactAlarmsNative, openAndroidSettingsNative } from '@/utils/userAlarmPlugin';
+import type { NativeRepeat } from '@/utils/userAlarmPlugin';
 
 const SOUND_CHANNEL_MAP: Record<string, { channelId: string; name: string; sound: string }> = {
   original: { channelId: 'alerts_original_v2', name: 'Alerts - Original', sound: 'alert_original' },
@@ -64,8 +65,10 @@ function getNextOccurrence(alarm: Alarm): Date | null {
     }
 
     if (alarm.repeatMonthly) {
-      while (targetDate <= nowUTC) {
-        targetDate.setUTCMonth(targetDate.getUTCMonth() + 1);
+      // Always count months from the original day, so the 31st does not drift to the 3rd for good
+      // after a short month; an overflowing day rolls into the next month like Date.UTC does
+      for (let months = 1; targetDate <= nowUTC; months++) {
+        targetDate.setTime(Date.UTC(year, month - 1 + months, day, alarm.hourUTC, alarm.minuteUTC, 0, 0));
       }
       return targetDate;
     }
@@ -78,6 +81,20 @@ function getNextOccurrence(alarm: Alarm): Date | null {
   return null;
 }
 
+// Mirrors getNextOccurrence so native code can roll a missed alarm forward
+function getNativeRepeat(alarm: Alarm): { repeat: NativeRepeat; repeatDays: number } {
+  const days = Array.isArray(alarm.repeatDays) ? alarm.repeatDays : [];
+  if (days.length > 0) {
+    return { repeat: 'days', repeatDays: days.reduce((mask, d) => mask | (1 << d), 0) };
+  }
+  if (alarm.dateUTC && alarm.repeatWeekly) return { repeat: 'weekly', repeatDays: 0 };
+  // For monthly alarms native takes the anchor day of month in repeatDays
+  if (alarm.dateUTC && alarm.repeatMonthly) {
+    return { repeat: 'monthly', repeatDays: Number(alarm.dateUTC.split('-')[2]) || 0 };
+  }
+  return { repeat: 'none', repeatDays: 0 };
+}
+
 const SESSION_ALERT_ID_BASE = 900000;
 const SESSION_ALERT_ID_MAX = 900100;
 
@@ -144,7 +161,7 @@ export async function scheduleAlarmNotification(alarm: Alarm): Promise<void> {
 
   if (!alarm.isEnabled) {
     console.log(`[Notifications] Alarm disabled - cancelling (isUserAlarm: ${!alarm.isFixed})`);
-    await cancelAlarmNotification(alarm.id, !alarm.isFixed);
+    await cancelAlarmNotification(alarm.id, !alarm.isFixed, true);
     return;
   }
 
@@ -188,12 +205,15 @@ export async function scheduleAlarmNotification(alarm: Alarm): Promise<void> {
   console.log('[Notifications] ===== SCHEDULING USER ALARM VIA ANDROID NATIVE =====');
 
   const soundId = getSelectedSoundId();
+  const { repeat, repeatDays } = getNativeRepeat(alarm);
 
   const success = await scheduleUserAlarmNative(
     alarm.id,
     alarm.label,
     nextOccurrence,
-    soundId
+    soundId,
+    repeat,
+    repeatDays
   );
 
   console.log(`[Notifications] scheduleUserAlarmNative returned: ${success}`);
@@ -336,13 +356,14 @@ async function scheduleIOSUserAlarm(alarm: Alarm, triggerTime: Date, soundId: st
   }
 }
 
-export async function cancelAlarmNotification(alarmId: string, isUserAlarm: boolean = false): Promise<void> {
+// dropSnooze is for deletes and disables; a cancel before re-arming keeps a pending snooze
+export async function cancelAlarmNotification(alarmId: string, isUserAlarm: boolean = false, dropSnooze: boolean = false): Promise<void> {
   if (!Capacitor.isNativePlatform()) {
     return;
   }
 
   if (isUserAlarm && isAndroidNative()) {
-    await cancelUserAlarmNative(alarmId);
+    await cancelUserAlarmNative(alarmId, dropSnooze);
   }
 
   const notificationId = alarmIdToNotificationId(alarmId);
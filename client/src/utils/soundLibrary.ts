@@ -1,55 +1,92 @@
+import { getSoundCatalogNative, pickSoundNative, removeSoundNative } from "@/utils/userAlarmPlugin";
+
 export interface AlertSound {
   id: string;
   name: string;
   description: string;
   file: string;
+  // Imported on this device; the user can remove it again
+  imported: boolean;
+}
+
+interface SoundCatalogEntry {
+  id: string;
+  name: string;
+  description: string;
+  resName: string | null;
+  imported?: boolean;
 }
 
-export const alertSounds: AlertSound[] = [
-  {
-    id: "original",
-    name: "Original",
-    description: "Original app alert sound",
-    file: "/sounds/alert_original.mp3",
-  },
-  {
-    id: "classic",
-    name: "Classic",
-    description: "Standard notification tone",
-    file: "/sounds/alert_classic.mp3",
-  },
-  {
-    id: "chime",
-    name: "Chime",
-    description: "Extended melodic chime",
-    file: "/sounds/alert_chime.mp3",
-  },
-  {
-    id: "bell",
-    name: "Bell",
-    description: "Crisp bell sound",
-    file: "/sounds/alert_bell.mp3",
-  },
-  {
-    id: "ping",
-    name: "Ping",
-    description: "Quick ping notification",
-    file: "/sounds/alert_ping.mp3",
-  },
-  {
-    id: "tone",
-    name: "Tone",
-    description: "Classic alert tone",
-    file: "/sounds/alert_tone.mp3",
-  },
-  {
-    id: "custom",
-    name: "System Alarm Sound",
-    description: "System-managed sound",
-    file: "",
-  },
+// Only for builds without the native side; on Android, loadSoundCatalog()
+// publishes the entries from SoundCatalog.java in their place.
+const WEB_SOUND_CATALOG: SoundCatalogEntry[] = [
+  { id: "original", name: "Original", description: "Original app alert sound", resName: "alert_original" },
+  { id: "classic", name: "Classic", description: "Standard notification tone", resName: "alert_classic" },
+  { id: "chime", name: "Chime", description: "Extended melodic chime", resName: "alert_chime" },
+  { id: "bell", name: "Bell", description: "Crisp bell sound", resName: "alert_bell" },
+  { id: "ping", name: "Ping", description: "Quick ping notification", resName: "alert_ping" },
+  { id: "tone", name: "Tone", description: "Classic alert tone", resName: "alert_tone" },
 ];
 
+const CUSTOM_SOUND: AlertSound = {
+  id: "custom",
+  name: "System Alarm Sound",
+  description: "System-managed sound",
+  file: "",
+  imported: false,
+};
+
+function toAlertSound(entry: SoundCatalogEntry): AlertSound {
+  return {
+    id: entry.id,
+    name: entry.name,
+    description: entry.description,
+    // Imported sounds only exist in the native cache and have no web file
+    file: entry.resName ? `/sounds/${entry.resName}.mp3` : "",
+    imported: entry.imported === true,
+  };
+}
+
+// The catalog in effect. Each load publishes a new array, so subscribers can compare by identity.
+let currentSounds: AlertSound[] = [...WEB_SOUND_CATALOG.map(toAlertSound), CUSTOM_SOUND];
+const soundListeners: Array<() => void> = [];
+
+export function getAlertSounds(): AlertSound[] {
+  return currentSounds;
+}
+
+export function subscribeAlertSounds(listener: () => void): () => void {
+  soundListeners.push(listener);
+  return () => {
+    const index = soundListeners.indexOf(listener);
+    if (index > -1) {
+      soundListeners.splice(index, 1);
+    }
+  };
+}
+
+export async function loadSoundCatalog(): Promise<void> {
+  const catalog = await getSoundCatalogNative();
+  if (!catalog || catalog.sounds.length === 0) return;
+
+  currentSounds = [...catalog.sounds.map(toAlertSound), CUSTOM_SOUND];
+  soundListeners.forEach((listener) => listener());
+}
+
+export async function importAlertSound(): Promise<string | null> {
+  const result = await pickSoundNative();
+  if (!result?.success || !result.soundId) return null;
+
+  await loadSoundCatalog();
+  return result.soundId;
+}
+
+export async function removeAlertSound(soundId: string): Promise<boolean> {
+  const removed = await removeSoundNative(soundId);
+  if (removed) await loadSoundCatalog();
+  return removed;
+}
+
 export function getCustomSoundName(): string {
   if (typeof window !== 'undefined' && 'Capacitor' in window) {
     const Capacitor = (window as { Capacitor?: { isNativePlatform?: () => boolean; getPlatform?: () => string } }).Capacitor;
@@ -106,7 +143,7 @@ let currentAudio: HTMLAudioElement | null = null;
 
 export function getSoundById(id: string): AlertSound | undefined {
   const migratedId = migrateSoundId(id);
-  return alertSounds.find((sound) => sound.id === migratedId);
+  return currentSounds.find((sound) => sound.id === migratedId);
 }
 
 export function getSelectedSoundId(): string {
@@ -1,4 +1,4 @@
-import { Capacitor, registerPlugin } from '@capacitor/core';
+import { Capacitor, registerPlugin, type PluginListenerHandle } from '@capacitor/core';
 
 interface UserAlarmPlugin {
   scheduleAlarm(options: {
@@ -6,15 +6,195 @@ interface UserAlarmPlugin {
     label: string;
     triggerTimeMs: number;
     soundId: string;
+    priority?: number;
+    repeat?: NativeRepeat;
+    repeatDays?: number;
   }): Promise<{ success: boolean; alarmId: string }>;
   
-  cancelAlarm(options: { alarmId: string }): Promise<{ success: boolean; alarmId: string }>;
+  // dropSnooze also cancels a pending snooze and resets the snooze count
+  cancelAlarm(options: { alarmId: string; dropSnooze?: boolean }): Promise<{ success: boolean; alarmId: string }>;
   
-  stopCurrentAlarm(): Promise<{ success: boolean }>;
+  stopCurrentAlarm(options?: { alarmIds?: string[] }): Promise<{ success: boolean; stoppedIds?: string[] }>;
+
+  // Re-armed natively; alarms that are out of snoozes are stopped instead
+  snoozeCurrentAlarm(options?: { alarmIds?: string[] }): Promise<{ success: boolean; error?: string }>;
+
+  getSnoozePolicy(): Promise<SnoozePolicy>;
+
+  // By label if given, otherwise by stored trigger time in [fromMs, toMs)
+  queryAlarms(options?: { label?: string; fromMs?: number; toMs?: number; limit?: number }): Promise<{ alarms: StoredAlarm[] }>;
+
+  setSnoozePolicy(options: Partial<SnoozePolicy>): Promise<SnoozePolicy & { success: boolean; error?: string }>;
+
+  getActiveAlarms(): Promise<{ alarms: ActiveAlarm[] }>;
+
+  getCatchUpPolicy(): Promise<{ windowMinutes: number }>;
+
+  getStoreDiagnostics(): Promise<AlarmStoreDiagnostics>;
+
+  getWakeLockStats(): Promise<{ locks: WakeLockStats[] }>;
+
+  // Time from the alarm firing to the native ringing screen's first frame
+  getAlarmScreenTiming(): Promise<{ lastFirstFrameMs: number; averageFirstFrameMs: number; samples: number }>;
+
+  getWakeupLedger(options?: { days?: number }): Promise<{ days: WakeupDay[]; capacity: number }>;
+
+  // Binary snapshot of every stored alarm plus the native alarm settings. clientData is
+  // stored as-is and returned on import; share opens the system share sheet for the file.
+  exportAlarms(options?: { clientData?: string; share?: boolean }): Promise<{ success: boolean; path?: string; uri?: string; alarms?: number; bytes?: number; error?: string }>;
+
+  // replace: also drop stored alarms that are not in the backup
+  importAlarms(options: { uri?: string; path?: string; replace?: boolean }): Promise<AlarmImportResult>;
+
+  // importAlarms() on a file the user picks
+  pickBackup(options?: { replace?: boolean }): Promise<AlarmImportResult>;
+
+  compactStore(): Promise<{ success: boolean; removed: number; reclaimedBytes: number; liveEntries: number; liveBytes: number }>;
+
+  setCatchUpPolicy(options: { windowMinutes: number }): Promise<{ success: boolean; windowMinutes?: number; error?: string }>;
   
   canScheduleExactAlarms(): Promise<{ canSchedule: boolean }>;
 
   openAndroidSettings(options: { action: string; useAppPackage?: boolean; intExtras?: Record<string, number> }): Promise<{ success: boolean; error?: string }>;
+
+  // iterations defaults to 10 and is capped at 50; fails while another benchmark is running
+  benchmarkAlarmAudio(options: { soundId?: string; iterations?: number }): Promise<AlarmAudioBenchmarkResult>;
+
+  getSoundCatalog(): Promise<NativeSoundCatalog>;
+
+  pickSound(options?: { name?: string }): Promise<SoundImportResult>;
+
+  importSound(options: { uri: string; name?: string }): Promise<SoundImportResult>;
+
+  removeSound(options: { soundId: string }): Promise<{ success: boolean; error?: string }>;
+
+  getNextDue(): Promise<{ next?: NextDue }>;
+
+  addListener<E extends keyof UserAlarmEvents>(
+    eventName: E,
+    listener: (event: UserAlarmEvents[E]) => void,
+  ): Promise<PluginListenerHandle>;
+}
+
+// How native code rolls an alarm forward when it was missed (UTC based)
+export type NativeRepeat = 'none' | 'weekly' | 'monthly' | 'days';
+
+export interface AlarmImportResult {
+  success: boolean;
+  alarms?: number;
+  removed?: number;
+  settingsRestored?: boolean;
+  armed?: number;
+  failed?: number;
+  elapsedMs?: number;
+  // What was passed to exportAlarms(), if the backup has it
+  clientData?: string;
+  error?: string;
+}
+
+// One row of the native alarm store; triggerTimeMs is the armed occurrence
+export interface StoredAlarm {
+  alarmId: string;
+  label: string;
+  triggerTimeMs: number;
+  soundId: string;
+  priority: number;
+  repeat: NativeRepeat;
+  repeatDays: number;
+  firedAtMs: number;
+}
+
+// Soonest armed user alarm or fixed session
+export interface NextDue {
+  triggerTimeMs: number;
+  kind: 'user' | 'session';
+  id: string;
+  label: string;
+}
+
+// Only delivered while the WebView is alive; resync with getNextDue() on start
+// The nth snooze of an alarm lasts durationsMinutes[n], with the last tier repeating
+export interface SnoozePolicy {
+  durationsMinutes: number[];
+  maxCount: number;
+}
+
+export interface UserAlarmEvents {
+  alarmFired: { kind: 'user' | 'session'; id: string; label: string; firedAtMs: number };
+  alarmStopped: { alarmIds: string[] };
+  // count is how many times alarmId has been snoozed in a row, including this one
+  alarmSnoozed: { alarmId: string; snoozeId: string; triggerTimeMs: number; count: number };
+  alarmsRescheduled: { reason: string; armed: number; failed: number; continued: boolean };
+  // Empty when nothing is armed
+  nextDueChanged: Partial<NextDue>;
+}
+
+export interface ActiveAlarm {
+  alarmId: string;
+  label: string;
+  soundId: string;
+  priority: number;
+  startedAtMs: number;
+}
+
+export interface AlarmStoreDiagnostics {
+  liveEntries: number;
+  liveBytes: number;
+  lastCompactionMs: number;
+  lastCompactionReason?: string;
+  lastRemoved: number;
+  lastReclaimedBytes: number;
+  totalReclaimedBytes: number;
+}
+
+// Per-tag totals since the process started
+export interface WakeLockStats {
+  tag: string;
+  acquireCount: number;
+  timeoutCount: number;
+  totalHeldMs: number;
+  maxHeldMs: number;
+  held: boolean;
+}
+
+export type WakeupSource = 'user_alarm' | 'fixed_session' | 'boot' | 'time_change' | 'rearm';
+
+// Newest UTC day first
+export interface WakeupDay {
+  dayStartMs: number;
+  total: number;
+  bySource: Record<WakeupSource, number>;
+}
+
+export interface SoundImportResult {
+  success: boolean;
+  soundId?: string;
+  name?: string;
+  deduplicated?: boolean;
+  error?: string;
+}
+
+export interface NativeSoundEntry {
+  id: string;
+  name: string;
+  description: string;
+  resName: string | null;
+  imported: boolean;
+}
+
+export interface NativeSoundCatalog {
+  sounds: NativeSoundEntry[];
+  defaultId: string;
+}
+
+export interface AlarmAudioBenchmarkResult {
+  success: boolean;
+  soundId?: string;
+  iterations?: number;
+  // Medians from the start request to the first frame reaching the audio output
+  mediaPlayerMedianMs?: number;
+  engineMedianMs?: number;
+  error?: string;
 }
 
 const UserAlarm = registerPlugin<UserAlarmPlugin>('UserAlarm');
@@ -25,7 +205,9 @@ export async function scheduleUserAlarmNative(
   alarmId: string,
   label: string,
   triggerTime: Date,
-  soundId: string
+  soundId: string,
+  repeat: NativeRepeat = 'none',
+  repeatDays: number = 0
 ): Promise<boolean> {
   const triggerTimeMs = triggerTime.getTime();
   const now = Date.now();
@@ -39,6 +221,7 @@ export async function scheduleUserAlarmNative(
   console.log(`[UserAlarm] now (ISO): ${new Date(now).toISOString()}`);
   console.log(`[UserAlarm] delta (sec): ${Math.round((triggerTimeMs - now) / 1000)}`);
   console.log(`[UserAlarm] soundId: ${soundId}`);
+  console.log(`[UserAlarm] repeat: ${repeat} (days mask ${repeatDays})`);
   console.log(`[UserAlarm] isNativePlatform: ${Capacitor.isNativePlatform()}`);
   console.log(`[UserAlarm] platform: ${Capacitor.getPlatform()}`);
   
@@ -60,6 +243,8 @@ export async function scheduleUserAlarmNative(
       label,
       triggerTimeMs,
       soundId,
+      repeat,
+      repeatDays,
     });
     console.log(`[UserAlarm] Result: success=${result.success}, alarmId=${result.alarmId}`);
     console.log(`[UserAlarm] Scheduled: ${alarmId} at ${triggerTime.toISOString()}`);
@@ -70,13 +255,13 @@ export async function scheduleUserAlarmNative(
   }
 }
 
-export async function cancelUserAlarmNative(alarmId: string): Promise<boolean> {
+export async function cancelUserAlarmNative(alarmId: string, dropSnooze: boolean = false): Promise<boolean> {
   if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
     return false;
   }
   
   try {
-    const result = await UserAlarm.cancelAlarm({ alarmId });
+    const result = await UserAlarm.cancelAlarm({ alarmId, dropSnooze });
     console.log(`[UserAlarm] Cancelled: ${alarmId}`);
     return result.success;
   } catch (e) {
@@ -85,14 +270,15 @@ export async function cancelUserAlarmNative(alarmId: string): Promise<boolean> {
   }
 }
 
-export async function stopCurrentAlarmNative(): Promise<boolean> {
+// Stops every ringing alarm, or only the given ones
+export async function stopCurrentAlarmNative(alarmIds?: string[]): Promise<boolean> {
   if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
     return false;
   }
   
   try {
-    const result = await UserAlarm.stopCurrentAlarm();
-    console.log('[UserAlarm] Stopped current alarm');
+    const result = await UserAlarm.stopCurrentAlarm(alarmIds ? { alarmIds } : undefined);
+    console.log(`[UserAlarm] Stopped alarms: ${(result.stoppedIds ?? []).join(', ')}`);
     return result.success;
   } catch (e) {
     console.error('[UserAlarm] Failed to stop current alarm:', e);
@@ -100,6 +286,224 @@ export async function stopCurrentAlarmNative(): Promise<boolean> {
   }
 }
 
+export async function snoozeCurrentAlarmNative(alarmIds?: string[]): Promise<boolean> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return false;
+  }
+
+  try {
+    const result = await UserAlarm.snoozeCurrentAlarm(alarmIds ? { alarmIds } : undefined);
+    return result.success;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to snooze current alarm:', e);
+    return false;
+  }
+}
+
+export async function getSnoozePolicyNative(): Promise<SnoozePolicy | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    return await UserAlarm.getSnoozePolicy();
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get snooze policy:', e);
+    return null;
+  }
+}
+
+export async function setSnoozePolicyNative(policy: Partial<SnoozePolicy>): Promise<boolean> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return false;
+  }
+
+  try {
+    const result = await UserAlarm.setSnoozePolicy(policy);
+    return result.success;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to set snooze policy:', e);
+    return false;
+  }
+}
+
+export async function getActiveAlarmsNative(): Promise<ActiveAlarm[]> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return [];
+  }
+
+  try {
+    const result = await UserAlarm.getActiveAlarms();
+    return result.alarms;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get active alarms:', e);
+    return [];
+  }
+}
+
+export async function getCatchUpWindowNative(): Promise<number | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    const result = await UserAlarm.getCatchUpPolicy();
+    return result.windowMinutes;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get catch-up policy:', e);
+    return null;
+  }
+}
+
+export async function setCatchUpWindowNative(windowMinutes: number): Promise<boolean> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return false;
+  }
+
+  try {
+    const result = await UserAlarm.setCatchUpPolicy({ windowMinutes });
+    return result.success;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to set catch-up policy:', e);
+    return false;
+  }
+}
+
+export async function getStoreDiagnosticsNative(): Promise<AlarmStoreDiagnostics | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    return await UserAlarm.getStoreDiagnostics();
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get store diagnostics:', e);
+    return null;
+  }
+}
+
+export async function getWakeLockStatsNative(): Promise<WakeLockStats[]> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return [];
+  }
+
+  try {
+    const result = await UserAlarm.getWakeLockStats();
+    return result.locks;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get wake lock stats:', e);
+    return [];
+  }
+}
+
+export async function getWakeupLedgerNative(days = 7): Promise<WakeupDay[]> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return [];
+  }
+
+  try {
+    const result = await UserAlarm.getWakeupLedger({ days });
+    return result.days;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get wakeup ledger:', e);
+    return [];
+  }
+}
+
+export async function getNextDueNative(): Promise<NextDue | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    const result = await UserAlarm.getNextDue();
+    return result.next ?? null;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to get next due alarm:', e);
+    return null;
+  }
+}
+
+// Returns a content uri suitable for sharing, or null
+export async function exportAlarmsNative(clientData?: string, share = false): Promise<string | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    const result = await UserAlarm.exportAlarms({ clientData, share });
+    if (!result.success) {
+      console.error('[UserAlarm] Failed to export alarms:', result.error);
+      return null;
+    }
+    console.log(`[UserAlarm] Exported ${result.alarms} alarms (${result.bytes} bytes)`);
+    return result.uri ?? null;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to export alarms:', e);
+    return null;
+  }
+}
+
+export async function importAlarmsNative(uri: string, replace = false): Promise<AlarmImportResult> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return { success: false, error: 'Not supported on this platform' };
+  }
+
+  try {
+    return await UserAlarm.importAlarms({ uri, replace });
+  } catch (e) {
+    console.error('[UserAlarm] Failed to import alarms:', e);
+    return { success: false, error: String(e) };
+  }
+}
+
+export async function pickBackupNative(replace = false): Promise<AlarmImportResult> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return { success: false, error: 'Not supported on this platform' };
+  }
+
+  try {
+    const result = await UserAlarm.pickBackup({ replace });
+    console.log(`[UserAlarm] Backup import: success=${result.success}, alarms=${result.alarms}, armed=${result.armed}`);
+    return result;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to import picked backup:', e);
+    return { success: false, error: String(e) };
+  }
+}
+
+export async function queryStoredAlarmsNative(
+  query: { label?: string; fromMs?: number; toMs?: number; limit?: number },
+): Promise<StoredAlarm[]> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return [];
+  }
+
+  try {
+    const result = await UserAlarm.queryAlarms(query);
+    return result.alarms;
+  } catch (e) {
+    console.error('[UserAlarm] Failed to query stored alarms:', e);
+    return [];
+  }
+}
+
+export async function addUserAlarmListener<E extends keyof UserAlarmEvents>(
+  eventName: E,
+  listener: (event: UserAlarmEvents[E]) => void,
+): Promise<PluginListenerHandle | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    return await UserAlarm.addListener(eventName, listener);
+  } catch (e) {
+    console.error(`[UserAlarm] Failed to add ${eventName} listener:`, e);
+    return null;
+  }
+}
+
 export async function canScheduleExactAlarmsNative(): Promise<boolean> {
   if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
     return true;
@@ -128,6 +532,63 @@ export async function openAndroidSettingsNative(action: string, useAppPackage: b
   }
 }
 
+export async function getSoundCatalogNative(): Promise<NativeSoundCatalog | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    return await UserAlarm.getSoundCatalog();
+  } catch (e) {
+    console.error('[UserAlarm] Failed to load sound catalog:', e);
+    return null;
+  }
+}
+
+export async function pickSoundNative(): Promise<SoundImportResult | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    const result = await UserAlarm.pickSound();
+    console.log(`[UserAlarm] Sound import: success=${result.success}, soundId=${result.soundId}, deduplicated=${result.deduplicated}`);
+    return result;
+  } catch (e) {
+    console.error('[UserAlarm] Sound import failed:', e);
+    return null;
+  }
+}
+
+export async function removeSoundNative(soundId: string): Promise<boolean> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return false;
+  }
+
+  try {
+    const result = await UserAlarm.removeSound({ soundId });
+    return result.success;
+  } catch (e) {
+    console.error(`[UserAlarm] Failed to remove sound ${soundId}:`, e);
+    return false;
+  }
+}
+
+export async function benchmarkAlarmAudioNative(soundId?: string, iterations?: number): Promise<AlarmAudioBenchmarkResult | null> {
+  if (!Capacitor.isNativePlatform() || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+
+  try {
+    const result = await UserAlarm.benchmarkAlarmAudio({ soundId, iterations });
+    console.log(`[UserAlarm] Audio benchmark: MediaPlayer ${result.mediaPlayerMedianMs}ms, engine ${result.engineMedianMs}ms`);
+    return result;
+  } catch (e) {
+    console.error('[UserAlarm] Audio benchmark failed:', e);
+    return null;
+  }
+}
+
 export function isAndroidNative(): boolean {
   return Capacitor.isNativePlatform() && Capacitor.getPlatform() === 'android';
 }